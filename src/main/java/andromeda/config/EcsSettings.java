@@ -0,0 +1,6 @@
+package andromeda.config;
+
+public class EcsSettings {
+    // store the data of packed components (Transform, RigidBody) in primitive columns per chunk
+    public static boolean packedComponents = true;
+}
@@ -16,4 +16,8 @@ public class GraphicsSettings {
         public static float depth = 100;
         public static float power = 3;
     }
+
+    public class Culling {
+        public static boolean frustum = true;
+    }
 }
@@ -0,0 +1,14 @@
+package andromeda.config;
+
+public class PhysicsSettings {
+    // the physics phase always steps by this many seconds, as many times as the frame time allows
+    public static float fixedTimeStep = 1.0f / 60.0f;
+    // steps per frame before the remaining time is dropped, keeps a slow frame from making the next one slower
+    public static int maxSubSteps = 5;
+    // render rigid bodies between their last two physics states instead of at the last one
+    public static boolean interpolate = true;
+    // seconds a group of touching bodies has to stay below their sleep thresholds before it falls asleep
+    public static float sleepTime = 0.5f;
+    // integrate in vector lanes, only has an effect when started with --add-modules jdk.incubator.vector
+    public static boolean vectorized = true;
+}
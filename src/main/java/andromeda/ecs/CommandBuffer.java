@@ -0,0 +1,134 @@
+package andromeda.ecs;
+
+import andromeda.ecs.component.Component;
+import andromeda.ecs.component.Transform;
+
+import java.util.*;
+
+/**
+ * Records structural changes made while systems are updating, they are applied in bulk when the ecs flushes.
+ * Entity ids are reserved immediately so that components can be added to new entities before the flush.
+ */
+public class CommandBuffer {
+
+    // a command with a removed type removes that component, one with an action runs it, one without a component destroys the entity
+    private record Command(int entityId, Component component, Class<? extends Component> removed, Runnable action) {
+        Command(int entityId, Component component, Class<? extends Component> removed) {
+            this(entityId, component, removed, null);
+        }
+    }
+
+    private final Ecs ecs;
+    private List<Command> commands;
+
+    CommandBuffer(Ecs ecs) {
+        this.ecs = ecs;
+        this.commands = new ArrayList<>();
+    }
+
+    public int createEntity() {
+        return this.createEntity(new Transform());
+    }
+
+    public synchronized int createEntity(Transform transform) {
+        int entity = ecs.reserveEntity();
+        commands.add(new Command(entity, transform, null));
+        return entity;
+    }
+
+    /**
+     * Records an instance of the prefab and returns the id reserved for its root.
+     */
+    public synchronized int instantiate(Prefab prefab) {
+        int[] entities = new int[prefab.size()];
+        for (int i = 0; i < prefab.size(); i++) {
+            entities[i] = ecs.reserveEntity();
+            int parent = prefab.getParent(i);
+            for (Component component : prefab.instantiate(i, parent == -1 ? -1 : entities[parent])) {
+                commands.add(new Command(entities[i], component, null));
+            }
+        }
+        return entities[0];
+    }
+
+    public <T extends Component> T addComponent(Class<T> clazz, int entityId) {
+        return this.addComponent(ecs.createComponent(clazz), entityId);
+    }
+
+    public synchronized <T extends Component> T addComponent(T component, int entityId) {
+        commands.add(new Command(entityId, component, null));
+        return component;
+    }
+
+    /**
+     * Removals are applied after the components added in the same batch.
+     */
+    public synchronized void removeComponent(Class<? extends Component> clazz, int entityId) {
+        commands.add(new Command(entityId, null, clazz));
+    }
+
+    public synchronized void destroyEntity(int entityId) {
+        commands.add(new Command(entityId, null, null));
+    }
+
+    /**
+     * Runs the action on the flushing thread once the commands recorded before it are applied, for work such as
+     * snapshots that can not run while systems are updating.
+     */
+    public synchronized void defer(Runnable action) {
+        commands.add(new Command(-1, null, null, action));
+    }
+
+    public synchronized boolean isEmpty() {
+        return commands.isEmpty();
+    }
+
+    void flush() {
+        List<Command> pending;
+        while (!(pending = take()).isEmpty()) {
+            int start = 0;
+            for (int i = 0; i < pending.size(); i++) {
+                var action = pending.get(i).action();
+                if (action != null) {
+                    apply(pending.subList(start, i));
+                    action.run();
+                    start = i + 1;
+                }
+            }
+            apply(pending.subList(start, pending.size()));
+        }
+    }
+
+    private synchronized List<Command> take() {
+        var pending = commands;
+        commands = new ArrayList<>();
+        return pending;
+    }
+
+    private void apply(List<Command> pending) {
+        Map<Integer, List<Component>> added = new LinkedHashMap<>();
+        List<Command> removed = new ArrayList<>();
+        Set<Integer> destroyed = new LinkedHashSet<>();
+
+        for (Command command : pending) {
+            if (command.removed() != null) {
+                removed.add(command);
+            } else if (command.component() == null) {
+                added.remove(command.entityId());
+                destroyed.add(command.entityId());
+            } else if (!destroyed.contains(command.entityId())) {
+                added.computeIfAbsent(command.entityId(), id -> new ArrayList<>()).add(command.component());
+            }
+        }
+
+        added.forEach((entity, components) -> ecs.addComponents(components, entity));
+        // observers hear about the batch once all of it is applied
+        added.forEach((entity, components) -> ecs.componentsAdded(components, entity));
+        for (Command command : removed) {
+            if (!destroyed.contains(command.entityId())) {
+                ecs.removeComponent(command.removed(), command.entityId());
+            }
+        }
+        destroyed.forEach(ecs::destroyEntity);
+    }
+}
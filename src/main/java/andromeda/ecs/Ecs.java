@@ -1,22 +1,36 @@
 package andromeda.ecs;
 
+import andromeda.DeltaTime;
+import andromeda.config.PhysicsSettings;
 import andromeda.ecs.component.*;
 import andromeda.ecs.entity.EntityManager;
 import andromeda.ecs.system.EcsSystem;
 import andromeda.ecs.system.*;
 
+import andromeda.util.SparseSet;
+
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
 
-public class Ecs {
+public final class Ecs {
 
     private final ComponentManager componentManager;
     private final EntityManager entityManager;
     private final SystemManager systemManager;
+    private final CommandBuffer commands;
+    private final List<EcsObserver> observers;
+    // frame time not yet simulated by the physics phase
+    private float physicsTime;
 
     public Ecs() {
         componentManager = new ComponentManager();
         entityManager = new EntityManager();
-        systemManager = new SystemManager();
+        systemManager = new SystemManager(componentManager::nextTick);
+        commands = new CommandBuffer(this);
+        observers = new ArrayList<>();
+        physicsTime = 0;
     }
 
     public void init() {
@@ -28,25 +42,59 @@ public class Ecs {
         componentManager.registerComponent(new FpsControl());
         componentManager.registerComponent(new RigidBody());
         componentManager.registerComponent(new Perspective());
+        if (PhysicsSettings.interpolate) {
+            componentManager.setDoubleBuffered(ComponentType.TRANSFORM);
+        }
 
         systemManager.registerSystem(new DebugSystem(this));
 
+        systemManager.registerSystem(new FpsControlSystem(this));
         systemManager.registerSystem(new TransformSystem(this));
         systemManager.registerSystem(new PropertiesSystem(this));
         systemManager.registerSystem(new CameraSystem(this));
-        systemManager.registerSystem(new FpsControlSystem(this));
 
         systemManager.registerSystem(new PhysicsSystem(this));
         systemManager.registerSystem(new RenderSystem(this));
         systemManager.registerSystem(new EditorSystem(this));
 
         systemManager.getSystems().forEach(EcsSystem::init);
+        commands.flush();
     }
 
     public void update() {
-        systemManager.getSystems(SystemType.PHYSICS).forEach(EcsSystem::update);
-        systemManager.getSystems(SystemType.LOOP).forEach(EcsSystem::update);
-        systemManager.getSystems(SystemType.RENDER).forEach(EcsSystem::update);
+        float step = PhysicsSettings.fixedTimeStep;
+        physicsTime += DeltaTime.deltaTime;
+        int steps = 0;
+        while (physicsTime >= step && steps < PhysicsSettings.maxSubSteps) {
+            componentManager.flip();
+            systemManager.update(SystemType.PHYSICS, step);
+            commands.flush();
+            physicsTime -= step;
+            steps++;
+        }
+        if (physicsTime >= step) {
+            physicsTime %= step;
+        }
+
+        systemManager.update(SystemType.LOOP);
+        commands.flush();
+        systemManager.update(SystemType.RENDER);
+        commands.flush();
+    }
+
+    /**
+     * How far the frame is between the last two physics steps, 0 is the state before the last step and 1 the state after it.
+     */
+    public float getInterpolation() {
+        return physicsTime / PhysicsSettings.fixedTimeStep;
+    }
+
+    public CommandBuffer commands() {
+        return commands;
+    }
+
+    public void flushCommands() {
+        commands.flush();
     }
 
     public int createEntity() {
@@ -55,33 +103,237 @@ public class Ecs {
         return entity;
     }
 
+    /**
+     * Creates count copies of the prefab hierarchy and returns their roots. Every entity is moved into its archetype
+     * and matched against the systems once.
+     */
+    public int[] instantiate(Prefab prefab, int count) {
+        int[] roots = new int[count];
+        int[] entities = new int[prefab.size()];
+        for (int n = 0; n < count; n++) {
+            for (int i = 0; i < prefab.size(); i++) {
+                entities[i] = entityManager.createEntity();
+                int parent = prefab.getParent(i);
+                var components = prefab.instantiate(i, parent == -1 ? -1 : entities[parent]);
+                addComponents(components, entities[i]);
+                componentsAdded(components, entities[i]);
+            }
+            roots[n] = entities[0];
+        }
+        return roots;
+    }
+
     public void destroyEntity(int entityId) {
+        if (!entityManager.isAlive(entityId)) {
+            return;
+        }
         systemManager.entityDestroyed(entityId);
+        for (int i = 0; i < observers.size(); i++) {
+            observers.get(i).entityDestroyed(entityId);
+        }
+        componentManager.entityDestroyed(entityId);
         entityManager.destroyEntity(entityId);
     }
 
+    /**
+     * Copies the whole world, pending commands are applied first.
+     */
+    public WorldSnapshot snapshot() {
+        commands.flush();
+        var transformSystem = systemManager.getSystem(TransformSystem.class);
+        var alive = entityManager.getEntities();
+
+        // roots first and every parent before its children, so restoring relinks the hierarchy in the same order
+        int[] entities = new int[alive.size()];
+        int size = 0;
+        var visited = new SparseSet(alive.size());
+        for (int root : transformSystem.getRoots()) {
+            entities[size++] = root;
+            visited.add(root);
+        }
+        for (int i = 0; i < size; i++) {
+            for (int child : transformSystem.getChildren(entities[i])) {
+                entities[size++] = child;
+                visited.add(child);
+            }
+        }
+        for (int i = 0; i < alive.size(); i++) {
+            if (!visited.contains(alive.get(i))) {
+                entities[size++] = alive.get(i);
+            }
+        }
+
+        int[] generations = new int[size];
+        boolean[] enabled = new boolean[size];
+        Component[][] components = new Component[size][];
+        for (int i = 0; i < size; i++) {
+            int entityId = entities[i];
+            generations[i] = entityManager.getGeneration(entityId);
+            enabled[i] = componentManager.isEnabled(entityId);
+            components[i] = componentManager.getComponents(entityId);
+            for (int c = 0; c < components[i].length; c++) {
+                components[i][c] = components[i][c].copy();
+            }
+        }
+        return new WorldSnapshot(entities, generations, enabled, components);
+    }
+
+    /**
+     * Replaces every entity with the entities of the snapshot. Systems and observers see the current entities being
+     * destroyed and the restored ones being added. The snapshot is not consumed and can be restored again.
+     */
+    public void restore(WorldSnapshot snapshot) {
+        commands.flush();
+        for (int entityId : entityManager.getEntities().toArray()) {
+            destroyEntity(entityId);
+        }
+
+        entityManager.reset(snapshot.entities, snapshot.generations);
+        List<List<Component>> restored = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            var components = snapshot.copyComponents(i);
+            addComponents(components, snapshot.entities[i]);
+            if (!snapshot.enabled[i]) {
+                componentManager.setEnabled(snapshot.entities[i], false);
+            }
+            restored.add(components);
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            componentsAdded(restored.get(i), snapshot.entities[i]);
+        }
+    }
+
     public <T extends Component> T getComponent(Class<T> clazz, int entityId) {
         return componentManager.getComponent(clazz, entityId);
     }
 
+    public <T extends Component> T getComponentMut(Class<T> clazz, int entityId) {
+        return componentManager.getComponentMut(clazz, entityId);
+    }
+
+    /**
+     * Opts the component type into double buffering. The state before the last physics step stays readable through
+     * getPreviousComponent and Chunk.getPrevious while systems write the current state, so a system that only
+     * reads the previous state does not have to declare the type in its reads and can run next to the writers.
+     * Only changes marked through getComponentMut or markChanged reach the previous state.
+     */
+    public void setDoubleBuffered(Class<? extends Component> clazz) {
+        componentManager.setDoubleBuffered(componentManager.getComponentType(clazz));
+    }
+
+    public <T extends Component> T getPreviousComponent(Class<T> clazz, int entityId) {
+        return componentManager.getPreviousComponent(clazz, entityId);
+    }
+
+    public void markChanged(ComponentType componentType, int entityId) {
+        componentManager.markChanged(componentType, entityId);
+    }
+
+    public int getTick() {
+        return componentManager.getTick();
+    }
+
+    public int getFlipTick() {
+        return componentManager.getFlipTick();
+    }
+
     public <T extends Component> T addComponent(Class<T> clazz, int entityId) {
-        var component = componentManager.addComponent(clazz, entityId);
-        entityManager.getSignature(entityId).set(component.componentType());
-        systemManager.entitySignatureUpdate(entityId, entityManager.getSignature(entityId));
-        return component;
+        return this.addComponent(componentManager.createComponent(clazz), entityId);
     }
 
     public <T extends Component> T addComponent(T component, int entityId) {
         var c = componentManager.addComponent(component, entityId);
         entityManager.getSignature(entityId).set(c.componentType());
         systemManager.entitySignatureUpdate(entityId, entityManager.getSignature(entityId));
+        componentAdded(entityId, c.componentType());
         return c;
     }
 
-    public Collection<Integer> getEntities() {
+    /**
+     * Removes the component and returns it, or null if the entity did not have it.
+     */
+    public <T extends Component> T removeComponent(Class<T> clazz, int entityId) {
+        if (!entityManager.isAlive(entityId)) {
+            return null;
+        }
+        var componentType = componentManager.getComponentType(clazz);
+        var signature = entityManager.getSignature(entityId);
+        if (!signature.has(componentType)) {
+            return null;
+        }
+        if (componentType == ComponentType.TRANSFORM) {
+            throw new IllegalArgumentException("Transform can not be removed from an entity");
+        }
+
+        // systems are told first so onRemove can still read the component
+        signature.clear(componentType);
+        systemManager.entityComponentRemoved(entityId, signature, componentType);
+        var removed = componentManager.removeComponent(componentType, entityId);
+        for (int i = 0; i < observers.size(); i++) {
+            observers.get(i).componentRemoved(entityId, componentType);
+        }
+        return clazz.cast(removed);
+    }
+
+    void addComponents(List<Component> components, int entityId) {
+        if (!entityManager.isAlive(entityId)) {
+            return;
+        }
+        componentManager.addComponents(components, entityId);
+        var signature = entityManager.getSignature(entityId);
+        for (Component component : components) {
+            signature.set(component.componentType());
+        }
+        systemManager.entitySignatureUpdate(entityId, signature);
+    }
+
+    void componentsAdded(List<Component> components, int entityId) {
+        if (!entityManager.isAlive(entityId)) {
+            return;
+        }
+        for (Component component : components) {
+            componentAdded(entityId, component.componentType());
+        }
+    }
+
+    private void componentAdded(int entityId, ComponentType componentType) {
+        for (int i = 0; i < observers.size(); i++) {
+            observers.get(i).componentAdded(entityId, componentType);
+        }
+    }
+
+    public void addObserver(EcsObserver observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(EcsObserver observer) {
+        observers.remove(observer);
+    }
+
+    int reserveEntity() {
+        return entityManager.createEntity();
+    }
+
+    <T extends Component> T createComponent(Class<T> clazz) {
+        return componentManager.createComponent(clazz);
+    }
+
+    public void forEachChunk(Signature signature, BiConsumer<Archetype, Chunk> consumer) {
+        componentManager.forEachChunk(signature, consumer);
+    }
+
+    public SparseSet getEntities() {
         return entityManager.getEntities();
     }
 
+    public long getHandle(int entityId) {
+        return entityManager.getHandle(entityId);
+    }
+
+    public boolean isAlive(long handle) {
+        return entityManager.isAlive(handle);
+    }
+
     public Signature getSignature(int entityId) {
         return entityManager.getSignature(entityId);
     }
@@ -90,19 +342,30 @@ public class Ecs {
         return systemManager.getSystem(clazz);
     }
 
+    /**
+     * Disabled entities keep their components and system membership but are skipped by queries.
+     */
     public void enableEntity(int entityId) {
-        systemManager.entitySignatureUpdate(entityId, entityManager.getSignature(entityId));
+        componentManager.setEnabled(entityId, true);
     }
 
     public void disableEntity(int entityId) {
-        systemManager.entityDestroyed(entityId);
+        componentManager.setEnabled(entityId, false);
+    }
+
+    public boolean isEnabled(int entityId) {
+        return componentManager.isEnabled(entityId);
     }
 
     public Collection<Component> getComponents() {
         return componentManager.getComponents();
     }
 
-    public void query(ComponentType... componentTypes ) {
+    public Query query(ComponentType... componentTypes) {
+        return componentManager.query(Signature.of(componentTypes));
+    }
 
+    public Query query(Signature signature) {
+        return componentManager.query(signature);
     }
 }
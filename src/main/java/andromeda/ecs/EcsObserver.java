@@ -0,0 +1,21 @@
+package andromeda.ecs;
+
+import andromeda.ecs.component.ComponentType;
+
+/**
+ * Receives structural changes of the ecs. Changes recorded in a {@link CommandBuffer} are reported when it is flushed.
+ */
+public interface EcsObserver {
+
+    default void componentAdded(int entityId, ComponentType componentType) {
+    }
+
+    default void componentRemoved(int entityId, ComponentType componentType) {
+    }
+
+    /**
+     * Called before the components of the entity are removed, so they can still be read.
+     */
+    default void entityDestroyed(int entityId) {
+    }
+}
@@ -0,0 +1,114 @@
+package andromeda.ecs;
+
+import andromeda.ecs.component.Component;
+import andromeda.ecs.component.Transform;
+import andromeda.ecs.system.TransformSystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hierarchy of component templates that can be instantiated many times. Node 0 is the root and a node always comes
+ * after its parent. Instances get copies of the templates, resources such as geometry are shared through Component.copy.
+ */
+public class Prefab {
+    private final List<Component[]> nodes;
+    private int[] parents;
+
+    public Prefab() {
+        this.nodes = new ArrayList<>();
+        this.parents = new int[4];
+    }
+
+    /**
+     * Adds a node and returns its index, the root is added with parent -1.
+     */
+    public int add(int parentIndex, Component... components) {
+        if (nodes.isEmpty() != (parentIndex == -1) || parentIndex >= nodes.size()) {
+            throw new IllegalArgumentException("Only the first node is a root and parents have to be added before their children");
+        }
+
+        var templates = components;
+        if (Arrays.stream(components).noneMatch(c -> c instanceof Transform)) {
+            templates = Arrays.copyOf(components, components.length + 1);
+            templates[components.length] = new Transform();
+        }
+
+        if (nodes.size() == parents.length) {
+            parents = Arrays.copyOf(parents, parents.length * 2);
+        }
+        parents[nodes.size()] = parentIndex;
+        nodes.add(templates);
+        return nodes.size() - 1;
+    }
+
+    /**
+     * Adds the nodes of another prefab with its root below the given parent.
+     */
+    public void add(int parentIndex, Prefab prefab) {
+        int offset = nodes.size();
+        for (int i = 0; i < prefab.size(); i++) {
+            var components = Arrays.stream(prefab.nodes.get(i)).map(Component::copy).toArray(Component[]::new);
+            add(i == 0 ? parentIndex : prefab.parents[i] + offset, components);
+        }
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    /**
+     * The template of the node, changing it affects the instances created afterwards.
+     */
+    public <T extends Component> T get(int index, Class<T> clazz) {
+        for (Component component : nodes.get(index)) {
+            if (clazz.isInstance(component)) {
+                return clazz.cast(component);
+            }
+        }
+        return null;
+    }
+
+    List<Component> instantiate(int index, int parentEntityId) {
+        var templates = nodes.get(index);
+        List<Component> components = new ArrayList<>(templates.length);
+        for (Component template : templates) {
+            var component = template.copy();
+            if (component instanceof Transform transform) {
+                transform.setParentEntityId(parentEntityId);
+            }
+            components.add(component);
+        }
+        return components;
+    }
+
+    /**
+     * Captures an entity and its children, the root of the prefab has no parent.
+     */
+    public static Prefab of(Ecs ecs, int entityId) {
+        var prefab = new Prefab();
+        var transformSystem = ecs.getSystem(TransformSystem.class);
+        capture(ecs, transformSystem, entityId, -1, prefab);
+        return prefab;
+    }
+
+    private static void capture(Ecs ecs, TransformSystem transformSystem, int entityId, int parentIndex, Prefab prefab) {
+        List<Component> components = new ArrayList<>();
+        for (Component c : ecs.getComponents()) {
+            var component = ecs.getComponent(c.getClass(), entityId);
+            if (component != null) {
+                components.add(component.copy());
+            }
+        }
+
+        int index = prefab.add(parentIndex, components.toArray(Component[]::new));
+        for (int child : transformSystem.getChildren(entityId)) {
+            capture(ecs, transformSystem, child, index, prefab);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package andromeda.ecs;
+
+import andromeda.ecs.component.*;
+import andromeda.geometry.Geometry;
+import andromeda.geometry.Mesh;
+import andromeda.geometry.Vertex;
+import andromeda.material.Material;
+import andromeda.material.Texture;
+import org.joml.Quaternionf;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary encoding of the components in a snapshot. A component is written as its index in TYPES followed by
+ * its fields, new component types have to be appended so older snapshots keep their meaning.
+ */
+class SnapshotCodec {
+    private static final List<Class<? extends Component>> TYPES = List.of(
+            Transform.class, EcsModel.class, PointLightComponent.class, DirectionalLightComponent.class,
+            CameraComponent.class, FpsControl.class, RigidBody.class, Perspective.class);
+
+    static void writeComponent(DataOutputStream out, Component component, Map<Geometry, Integer> geometryIds) throws IOException {
+        int type = TYPES.indexOf(component.getClass());
+        if (type == -1) {
+            throw new IllegalArgumentException("Component can not be written to a snapshot: " + component.getClass().getName());
+        }
+        out.writeByte(type);
+
+        if (component instanceof Transform transform) {
+            writeString(out, transform.getName());
+            out.writeInt(transform.getParentEntityId());
+            writeVector(out, transform.getPosition());
+            var rotation = transform.getRotation();
+            out.writeFloat(rotation.x);
+            out.writeFloat(rotation.y);
+            out.writeFloat(rotation.z);
+            out.writeFloat(rotation.w);
+            writeVector(out, transform.getScale());
+        } else if (component instanceof EcsModel model) {
+            out.writeInt(model.getMeshes().size());
+            for (Mesh mesh : model.getMeshes()) {
+                out.writeInt(geometryIds.get(mesh.getGeometry()));
+                writeMaterial(out, mesh.getMaterial());
+            }
+        } else if (component instanceof PointLightComponent light) {
+            writeVector(out, light.color);
+            out.writeFloat(light.radius);
+            out.writeFloat(light.intensity);
+        } else if (component instanceof DirectionalLightComponent light) {
+            writeVector(out, light.color);
+            out.writeFloat(light.intensity);
+            out.writeBoolean(light.castShadows);
+        } else if (component instanceof CameraComponent camera) {
+            out.writeBoolean(camera.mainCamera);
+        } else if (component instanceof FpsControl control) {
+            writeVector(out, control.targetPosition);
+            out.writeFloat(control.targetYaw);
+            out.writeFloat(control.targetPitch);
+            out.writeFloat(control.movementSpeed);
+            out.writeFloat(control.rotationSpeed);
+            out.writeFloat(control.movementSmoothing);
+            out.writeFloat(control.rotationSmoothing);
+        } else if (component instanceof RigidBody rigidBody) {
+            writeVector(out, rigidBody.getVelocity());
+            out.writeFloat(rigidBody.getDrag());
+            out.writeFloat(rigidBody.getMass());
+            out.writeFloat(rigidBody.getRestitution());
+            out.writeByte(rigidBody.getShape().ordinal());
+            out.writeFloat(rigidBody.getSleepThreshold());
+            out.writeBoolean(rigidBody.isSleeping());
+        } else if (component instanceof Perspective perspective) {
+            out.writeFloat(perspective.aspectRatio);
+            out.writeFloat(perspective.fov);
+            out.writeFloat(perspective.near);
+            out.writeFloat(perspective.far);
+        }
+    }
+
+    static Component readComponent(ByteBuffer in, Geometry[] geometries) {
+        var type = TYPES.get(in.get());
+
+        if (type == Transform.class) {
+            var transform = new Transform();
+            transform.setName(readString(in));
+            transform.setParentEntityId(in.getInt());
+            transform.setPosition(in.getFloat(), in.getFloat(), in.getFloat());
+            transform.setRotation(new Quaternionf(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat()));
+            transform.setScale(in.getFloat(), in.getFloat(), in.getFloat());
+            return transform;
+        } else if (type == EcsModel.class) {
+            var model = new EcsModel();
+            int meshes = in.getInt();
+            for (int i = 0; i < meshes; i++) {
+                var geometry = geometries[in.getInt()];
+                model.getMeshes().add(new Mesh(geometry, readMaterial(in)));
+            }
+            return model;
+        } else if (type == PointLightComponent.class) {
+            var light = new PointLightComponent();
+            light.color = readVector(in);
+            light.radius = in.getFloat();
+            light.intensity = in.getFloat();
+            return light;
+        } else if (type == DirectionalLightComponent.class) {
+            var light = new DirectionalLightComponent();
+            light.color = readVector(in);
+            light.intensity = in.getFloat();
+            light.castShadows = in.get() != 0;
+            return light;
+        } else if (type == CameraComponent.class) {
+            var camera = new CameraComponent();
+            camera.mainCamera = in.get() != 0;
+            return camera;
+        } else if (type == FpsControl.class) {
+            var control = new FpsControl();
+            control.targetPosition = readVector(in);
+            control.targetYaw = in.getFloat();
+            control.targetPitch = in.getFloat();
+            control.movementSpeed = in.getFloat();
+            control.rotationSpeed = in.getFloat();
+            control.movementSmoothing = in.getFloat();
+            control.rotationSmoothing = in.getFloat();
+            return control;
+        } else if (type == RigidBody.class) {
+            var rigidBody = new RigidBody();
+            rigidBody.setVelocity(in.getFloat(), in.getFloat(), in.getFloat());
+            rigidBody.setDrag(in.getFloat());
+            rigidBody.setMass(in.getFloat());
+            rigidBody.setRestitution(in.getFloat());
+            rigidBody.setShape(RigidBody.Shape.values()[in.get()]);
+            rigidBody.setSleepThreshold(in.getFloat());
+            if (in.get() != 0) {
+                rigidBody.sleep();
+            }
+            return rigidBody;
+        } else {
+            var perspective = new Perspective();
+            perspective.aspectRatio = in.getFloat();
+            perspective.fov = in.getFloat();
+            perspective.near = in.getFloat();
+            perspective.far = in.getFloat();
+            return perspective;
+        }
+    }
+
+    static void writeGeometry(DataOutputStream out, Geometry geometry) throws IOException {
+        var vertices = geometry.getVertexData();
+        out.writeInt(vertices.length);
+        for (Vertex vertex : vertices) {
+            writeVector(out, vertex.position);
+            writeVector(out, vertex.normal);
+            out.writeFloat(vertex.uv.x);
+            out.writeFloat(vertex.uv.y);
+            writeVector(out, vertex.tangent);
+        }
+
+        var indices = geometry.getIndices();
+        out.writeInt(indices.length);
+        for (int index : indices) {
+            out.writeInt(index);
+        }
+    }
+
+    static Geometry readGeometry(ByteBuffer in) {
+        var vertices = new Vertex[in.getInt()];
+        for (int i = 0; i < vertices.length; i++) {
+            var vertex = new Vertex(readVector(in));
+            vertex.normal = readVector(in);
+            vertex.uv = new Vector2f(in.getFloat(), in.getFloat());
+            vertex.tangent = readVector(in);
+            vertices[i] = vertex;
+        }
+
+        var indices = new int[in.getInt()];
+        in.asIntBuffer().get(indices);
+        in.position(in.position() + indices.length * Integer.BYTES);
+        return new Geometry(vertices, indices);
+    }
+
+    private static void writeMaterial(DataOutputStream out, Material material) throws IOException {
+        writeVector(out, material.ambient);
+        writeVector(out, material.diffuse);
+        writeVector(out, material.specular);
+        out.writeFloat(material.shininess);
+        out.writeFloat(material.texture_scale.x);
+        out.writeFloat(material.texture_scale.y);
+        out.writeBoolean(material.unlit);
+        out.writeBoolean(material.wireFrame);
+        out.writeBoolean(material.isTransparent);
+        writeTexture(out, material.diffuse_texture);
+        writeTexture(out, material.roughness_texture);
+        writeTexture(out, material.normal_texture);
+    }
+
+    private static Material readMaterial(ByteBuffer in) {
+        var material = new Material(readVector(in), readVector(in), readVector(in), in.getFloat(), null, null);
+        material.texture_scale = new Vector2f(in.getFloat(), in.getFloat());
+        material.unlit = in.get() != 0;
+        material.wireFrame = in.get() != 0;
+        material.isTransparent = in.get() != 0;
+        material.diffuse_texture = readTexture(in);
+        material.roughness_texture = readTexture(in);
+        material.normal_texture = readTexture(in);
+        return material;
+    }
+
+    // textures are stored by path and loaded through the texture cache, textures without a path are dropped
+    private static void writeTexture(DataOutputStream out, Texture texture) throws IOException {
+        writeString(out, texture == null ? null : texture.getPath());
+        out.writeBoolean(texture != null && texture.isSrgb());
+    }
+
+    private static Texture readTexture(ByteBuffer in) {
+        var path = readString(in);
+        boolean srgb = in.get() != 0;
+        if (path == null) {
+            return null;
+        }
+        return srgb ? Texture.loadTexture(path) : Texture.loadNormalTexture(path);
+    }
+
+    private static void writeVector(DataOutputStream out, Vector3f vector) throws IOException {
+        out.writeFloat(vector.x);
+        out.writeFloat(vector.y);
+        out.writeFloat(vector.z);
+    }
+
+    private static Vector3f readVector(ByteBuffer in) {
+        return new Vector3f(in.getFloat(), in.getFloat(), in.getFloat());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        var bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
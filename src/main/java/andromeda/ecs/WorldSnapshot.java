@@ -0,0 +1,127 @@
+package andromeda.ecs;
+
+import andromeda.ecs.component.Component;
+import andromeda.ecs.component.EcsModel;
+import andromeda.geometry.Geometry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A copy of every entity in the world with its generation, enabled flag and components. Parents always come before
+ * their children. Restoring gives the entities back their ids with a new generation, handles taken before the
+ * restore stay dead.
+ */
+public class WorldSnapshot {
+    private static final int MAGIC = 0x414E4457;
+    private static final int VERSION = 3;
+
+    final int[] entities;
+    final int[] generations;
+    final boolean[] enabled;
+    final Component[][] components;
+
+    WorldSnapshot(int[] entities, int[] generations, boolean[] enabled, Component[][] components) {
+        this.entities = entities;
+        this.generations = generations;
+        this.enabled = enabled;
+        this.components = components;
+    }
+
+    public int size() {
+        return entities.length;
+    }
+
+    List<Component> copyComponents(int index) {
+        List<Component> copies = new ArrayList<>(components[index].length);
+        for (Component component : components[index]) {
+            copies.add(component.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * Writes the snapshot in the binary format, geometry shared between models is written once.
+     */
+    public void save(Path path) {
+        Map<Geometry, Integer> geometryIds = new IdentityHashMap<>();
+        List<Geometry> geometries = new ArrayList<>();
+        for (Component[] entityComponents : components) {
+            for (Component component : entityComponents) {
+                if (component instanceof EcsModel model) {
+                    for (var mesh : model.getMeshes()) {
+                        if (geometryIds.putIfAbsent(mesh.getGeometry(), geometries.size()) == null) {
+                            geometries.add(mesh.getGeometry());
+                        }
+                    }
+                }
+            }
+        }
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(geometries.size());
+            for (Geometry geometry : geometries) {
+                SnapshotCodec.writeGeometry(out, geometry);
+            }
+
+            out.writeInt(entities.length);
+            for (int i = 0; i < entities.length; i++) {
+                out.writeInt(entities[i]);
+                out.writeInt(generations[i]);
+                out.writeBoolean(enabled[i]);
+                out.writeByte(components[i].length);
+                for (Component component : components[i]) {
+                    SnapshotCodec.writeComponent(out, component, geometryIds);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to write snapshot: " + path);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by save, the file is memory mapped instead of read through a stream.
+     * Geometry is uploaded, so this has to be called on the render thread.
+     */
+    public static WorldSnapshot load(Path path) {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("Not a snapshot or an unsupported version: " + path);
+            }
+
+            var geometries = new Geometry[buffer.getInt()];
+            for (int i = 0; i < geometries.length; i++) {
+                geometries[i] = SnapshotCodec.readGeometry(buffer);
+                geometries[i].upload();
+            }
+
+            int size = buffer.getInt();
+            int[] entities = new int[size];
+            int[] generations = new int[size];
+            boolean[] enabled = new boolean[size];
+            Component[][] components = new Component[size][];
+            for (int i = 0; i < size; i++) {
+                entities[i] = buffer.getInt();
+                generations[i] = buffer.getInt();
+                enabled[i] = buffer.get() != 0;
+                components[i] = new Component[buffer.get()];
+                for (int c = 0; c < components[i].length; c++) {
+                    components[i][c] = SnapshotCodec.readComponent(buffer, geometries);
+                }
+            }
+            return new WorldSnapshot(entities, generations, enabled, components);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to load snapshot: " + path);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package andromeda.ecs.component;
+
+import andromeda.ecs.system.Signature;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Archetype {
+    public static final int CHUNK_SIZE = 256;
+
+    private final Signature signature;
+    private final ComponentType[] componentTypes;
+    private final Component[] blueprints;
+    private final int[] columnIndex;
+    // the columns that are double buffered, kept here so a flip does not look them up
+    private final boolean[] buffered;
+    private boolean anyBuffered;
+    private final List<Chunk> chunks;
+    private int size;
+
+    Archetype(Signature signature, ComponentType[] componentTypes, Component[] blueprints) {
+        this.signature = signature;
+        this.componentTypes = componentTypes;
+        this.blueprints = blueprints;
+        this.columnIndex = new int[ComponentType.count()];
+        for (int i = 0; i < columnIndex.length; i++) {
+            columnIndex[i] = -1;
+        }
+        for (int i = 0; i < componentTypes.length; i++) {
+            columnIndex[componentTypes[i].id] = i;
+        }
+        this.buffered = new boolean[componentTypes.length];
+        this.anyBuffered = false;
+        this.chunks = new ArrayList<>();
+        this.size = 0;
+    }
+
+    public Signature getSignature() {
+        return signature;
+    }
+
+    public ComponentType[] getComponentTypes() {
+        return componentTypes;
+    }
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean has(ComponentType componentType) {
+        return getColumn(componentType) != -1;
+    }
+
+    public int getColumn(ComponentType componentType) {
+        // types registered after the archetype was created can not be part of it
+        return componentType.id < columnIndex.length ? columnIndex[componentType.id] : -1;
+    }
+
+    int add(int entityId) {
+        if (chunks.isEmpty() || chunks.get(chunks.size() - 1).isFull()) {
+            chunks.add(new Chunk(blueprints, CHUNK_SIZE));
+        }
+        chunks.get(chunks.size() - 1).add(entityId);
+        return size++;
+    }
+
+    Component get(ComponentType componentType, int row) {
+        int column = getColumn(componentType);
+        if (column == -1) {
+            return null;
+        }
+        return chunks.get(row / CHUNK_SIZE).get(column, row % CHUNK_SIZE);
+    }
+
+    void set(ComponentType componentType, int row, Component component, int tick) {
+        var chunk = chunks.get(row / CHUNK_SIZE);
+        int column = columnIndex[componentType.id];
+        chunk.set(column, row % CHUNK_SIZE, component);
+        chunk.setChangeTick(column, row % CHUNK_SIZE, tick);
+    }
+
+    boolean isEnabled(int row) {
+        return chunks.get(row / CHUNK_SIZE).isEnabled(row % CHUNK_SIZE);
+    }
+
+    void setEnabled(int row, boolean enabled) {
+        chunks.get(row / CHUNK_SIZE).setEnabled(row % CHUNK_SIZE, enabled);
+    }
+
+    int getChangeTick(ComponentType componentType, int row) {
+        return chunks.get(row / CHUNK_SIZE).getChangeTick(columnIndex[componentType.id], row % CHUNK_SIZE);
+    }
+
+    void markRowChanged(int row, int tick) {
+        var chunk = chunks.get(row / CHUNK_SIZE);
+        for (int column = 0; column < chunk.getColumnCount(); column++) {
+            chunk.setChangeTick(column, row % CHUNK_SIZE, tick);
+        }
+    }
+
+    void markChanged(ComponentType componentType, int row, int tick) {
+        chunks.get(row / CHUNK_SIZE).setChangeTick(columnIndex[componentType.id], row % CHUNK_SIZE, tick);
+    }
+
+    void setDoubleBuffered(ComponentType componentType) {
+        int column = getColumn(componentType);
+        if (column != -1) {
+            buffered[column] = true;
+            anyBuffered = true;
+        }
+    }
+
+    void flip(int sinceTick) {
+        if (anyBuffered) {
+            for (Chunk chunk : chunks) {
+                chunk.flip(buffered, sinceTick);
+            }
+        }
+    }
+
+    /**
+     * Removes the row by moving the last row of the archetype into its place.
+     * Returns the entity that now occupies the row, or -1 if the removed row was the last one.
+     */
+    int swapRemove(int row) {
+        int lastRow = size - 1;
+        Chunk lastChunk = chunks.get(lastRow / CHUNK_SIZE);
+        int lastIndex = lastRow % CHUNK_SIZE;
+        int movedEntity = -1;
+
+        if (row != lastRow) {
+            Chunk chunk = chunks.get(row / CHUNK_SIZE);
+            int index = row % CHUNK_SIZE;
+            movedEntity = lastChunk.getEntity(lastIndex);
+            chunk.setEntity(index, movedEntity);
+            chunk.setEnabled(index, lastChunk.isEnabled(lastIndex));
+            for (int column = 0; column < componentTypes.length; column++) {
+                chunk.set(column, index, lastChunk.get(column, lastIndex));
+                chunk.setChangeTick(column, index, lastChunk.getChangeTick(column, lastIndex));
+            }
+        }
+
+        lastChunk.removeLast();
+        if (lastChunk.size() == 0) {
+            chunks.remove(chunks.size() - 1);
+        }
+        size--;
+        return movedEntity;
+    }
+}
@@ -0,0 +1,248 @@
+package andromeda.ecs.component;
+
+import andromeda.config.EcsSettings;
+
+import java.util.Arrays;
+
+public class Chunk {
+    private final Component[] blueprints;
+    private final int[] entities;
+    private final Component[][] columns;
+    private final PackedColumns[] packedColumns;
+    // the tick a component was last changed at, and the newest tick per column so unchanged chunks can be skipped
+    private final int[][] changeTicks;
+    private final int[] columnTicks;
+    // disabled rows stay in the chunk, iteration skips them
+    private final boolean[] enabled;
+    private int disabledCount;
+    private int size;
+    // last frame's state of the double buffered columns, allocated by the first flip
+    private PackedColumns[] previousPacked;
+    private Component[][] previousColumns;
+    // rows that got a new component since the last flip have no previous state
+    private final boolean[] moved;
+    private boolean anyMoved;
+
+    Chunk(Component[] blueprints, int capacity) {
+        this.blueprints = blueprints;
+        this.entities = new int[capacity];
+        this.columns = new Component[blueprints.length][capacity];
+        this.packedColumns = new PackedColumns[blueprints.length];
+        this.changeTicks = new int[blueprints.length][capacity];
+        this.columnTicks = new int[blueprints.length];
+        this.enabled = new boolean[capacity];
+        this.disabledCount = 0;
+        this.moved = new boolean[capacity];
+        this.anyMoved = false;
+        for (int i = 0; i < blueprints.length; i++) {
+            if (EcsSettings.packedComponents && blueprints[i] instanceof PackedComponent packedComponent) {
+                packedColumns[i] = packedComponent.createColumns(capacity);
+            }
+        }
+        this.size = 0;
+    }
+
+    int add(int entityId) {
+        entities[size] = entityId;
+        enabled[size] = true;
+        return size++;
+    }
+
+    void setEnabled(int index, boolean value) {
+        if (enabled[index] != value) {
+            enabled[index] = value;
+            disabledCount += value ? -1 : 1;
+        }
+    }
+
+    void set(int column, int index, Component component) {
+        var packed = packedColumns[column];
+        if (packed != null) {
+            detach(column, index);
+            var packedComponent = (PackedComponent) component;
+            packedComponent.getColumns().copy(packedComponent.getIndex(), packed, index);
+            packedComponent.bind(packed, index);
+        }
+        columns[column][index] = component;
+        moved[index] = true;
+        anyMoved = true;
+    }
+
+    int getColumnCount() {
+        return columns.length;
+    }
+
+    void setChangeTick(int column, int index, int tick) {
+        changeTicks[column][index] = tick;
+        if (columnTicks[column] < tick) {
+            columnTicks[column] = tick;
+        }
+    }
+
+    Component get(int column, int index) {
+        return columns[column][index];
+    }
+
+    void setEntity(int index, int entityId) {
+        entities[index] = entityId;
+    }
+
+    void removeLast() {
+        size--;
+        setEnabled(size, true);
+        entities[size] = -1;
+        for (int column = 0; column < columns.length; column++) {
+            detach(column, size);
+            columns[column][size] = null;
+        }
+    }
+
+    // gives a component that is leaving the chunk its own copy of its data
+    private void detach(int column, int index) {
+        var packed = packedColumns[column];
+        if (packed != null && columns[column][index] instanceof PackedComponent packedComponent
+                && packedComponent.getColumns() == packed && packedComponent.getIndex() == index) {
+            var own = packedComponent.createColumns(1);
+            packed.copy(index, own, 0);
+            packedComponent.bind(own, 0);
+        }
+    }
+
+    /**
+     * Copies the rows changed since the tick into the previous state of the buffered columns.
+     */
+    void flip(boolean[] buffered, int sinceTick) {
+        for (int column = 0; column < columns.length; column++) {
+            if (!buffered[column] || (!anyMoved && !changedSince(column, sinceTick) && hasPrevious(column))) {
+                continue;
+            }
+
+            boolean all = !hasPrevious(column);
+            var packed = packedColumns[column];
+            if (packed != null) {
+                if (previousPacked == null) {
+                    previousPacked = new PackedColumns[columns.length];
+                }
+                if (previousPacked[column] == null) {
+                    previousPacked[column] = ((PackedComponent) blueprints[column]).createColumns(entities.length);
+                }
+                for (int i = 0; i < size; i++) {
+                    if (all || moved[i] || changeTicks[column][i] > sinceTick) {
+                        packed.copy(i, previousPacked[column], i);
+                    }
+                }
+            } else {
+                if (previousColumns == null) {
+                    previousColumns = new Component[columns.length][];
+                }
+                if (previousColumns[column] == null) {
+                    previousColumns[column] = new Component[entities.length];
+                }
+                for (int i = 0; i < size; i++) {
+                    if (all || moved[i] || changeTicks[column][i] > sinceTick) {
+                        previousColumns[column][i] = columns[column][i].copy();
+                    }
+                }
+            }
+        }
+        Arrays.fill(moved, 0, size, false);
+        anyMoved = false;
+    }
+
+    private boolean hasPrevious(int column) {
+        return packedColumns[column] != null
+                ? previousPacked != null && previousPacked[column] != null
+                : previousColumns != null && previousColumns[column] != null;
+    }
+
+    boolean isFull() {
+        return size == entities.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEnabled(int index) {
+        return enabled[index];
+    }
+
+    /**
+     * The enabled flag of every row, for loops over the packed columns. Must not be modified.
+     */
+    public boolean[] getEnabledRows() {
+        return enabled;
+    }
+
+    /**
+     * True if no row of the chunk is disabled, lets chunk wide loops skip the per row check.
+     */
+    public boolean allEnabled() {
+        return disabledCount == 0;
+    }
+
+    public int getEntity(int index) {
+        return entities[index];
+    }
+
+    public Component[] getColumn(int column) {
+        return columns[column];
+    }
+
+    public void markChanged(int column, int index, int tick) {
+        setChangeTick(column, index, tick);
+    }
+
+    public void markChanged(int column, int tick) {
+        Arrays.fill(changeTicks[column], 0, size, tick);
+        if (columnTicks[column] < tick) {
+            columnTicks[column] = tick;
+        }
+    }
+
+    public int getChangeTick(int column, int index) {
+        return changeTicks[column][index];
+    }
+
+    public boolean changedSince(int column, int tick) {
+        return columnTicks[column] > tick;
+    }
+
+    public boolean changedSince(int column, int index, int tick) {
+        return changeTicks[column][index] > tick;
+    }
+
+    /**
+     * The primitive columns of a packed component, or null if the component is not stored packed.
+     */
+    public PackedColumns getPackedColumns(int column) {
+        return packedColumns[column];
+    }
+
+    /**
+     * The packed columns as they were at the last flip, or the current columns if the column is not double buffered.
+     * Rows added since the flip hold no previous state, see hasPrevious.
+     */
+    public PackedColumns getPreviousPackedColumns(int column) {
+        return previousPacked != null && previousPacked[column] != null ? previousPacked[column] : packedColumns[column];
+    }
+
+    /**
+     * The component as it was at the last flip, or the current component if there is no previous state for the row.
+     */
+    public Component getPrevious(int column, int index) {
+        if (!hasPrevious(column, index)) {
+            return columns[column][index];
+        }
+        if (packedColumns[column] != null) {
+            var previous = (PackedComponent) blueprints[column].createComponent();
+            previous.bind(previousPacked[column], index);
+            return previous;
+        }
+        return previousColumns[column][index];
+    }
+
+    public boolean hasPrevious(int column, int index) {
+        return !moved[index] && hasPrevious(column);
+    }
+}
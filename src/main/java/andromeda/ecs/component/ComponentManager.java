@@ -1,69 +1,344 @@
 package andromeda.ecs.component;
 
-import andromeda.ecs.entity.EntityManager;
+import andromeda.ecs.system.Signature;
+import andromeda.util.PagedArray;
+import andromeda.util.PagedIntArray;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 public class ComponentManager {
 
     // implement a "clickable" component and a "clickable" system????
     // The system can render to entities to a "texture" the size of the screen, the texture could contain the id of the entity!!!!!
 
-    private Map<Class<?>, Component[]> entityComponentMap;
     private Map<Class<?>, Component> componentMap;
+    private Map<Class<?>, ComponentType> componentTypes;
+    private Map<ComponentType, Component> blueprints;
+
+    private Map<Signature, Archetype> archetypes;
+    private List<Archetype> archetypeList;
+    private Map<Signature, Query> queries;
+
+    private PagedArray<Archetype> entityArchetypes;
+    private PagedIntArray entityRows;
+    private final AtomicInteger tick;
+    private final Set<ComponentType> doubleBuffered;
+    private int flipTick;
 
     public ComponentManager() {
-        entityComponentMap = new HashMap<>();
         componentMap = new HashMap<>();
+        componentTypes = new HashMap<>();
+        blueprints = new HashMap<>();
+        archetypes = new HashMap<>();
+        archetypeList = new ArrayList<>();
+        queries = new HashMap<>();
+        entityArchetypes = new PagedArray<>();
+        entityRows = new PagedIntArray(-1);
+        tick = new AtomicInteger(1);
+        doubleBuffered = new HashSet<>();
+        flipTick = 0;
     }
 
     public <T extends Component> void registerComponent(T component) {
-        var components = new Component[EntityManager.MAX_ENTITIES];
-        if (entityComponentMap.containsKey(component.getClass())) {
+        if (componentMap.containsKey(component.getClass())) {
             throw new IllegalStateException("Component type already registered");
         }
-        entityComponentMap.put(component.getClass(), components);
+        var componentType = ComponentType.register(component.getClass());
+        if (componentType != component.componentType()) {
+            throw new IllegalStateException("Component type does not match its class " + component.getClass().getName());
+        }
         componentMap.put(component.getClass(), component);
+        componentTypes.put(component.getClass(), componentType);
+        blueprints.put(componentType, component);
     }
 
-    public <T extends Component> T addComponent(Class<T> clazz, int entityId) {
+    public <T extends Component> T createComponent(Class<T> clazz) {
         if (!componentMap.containsKey(clazz)) {
             throw new IllegalStateException("Component type not registered " + clazz.getName());
         }
 
         var componentBlueprint = componentMap.get(clazz);
-        var component = componentBlueprint.createComponent();
-
-        entityComponentMap.get(clazz)[entityId] = component;
+        return clazz.cast(componentBlueprint.createComponent());
+    }
 
-        return clazz.cast(component);
+    public <T extends Component> T addComponent(Class<T> clazz, int entityId) {
+        return this.addComponent(this.createComponent(clazz), entityId);
     }
 
     public <T extends Component> T addComponent(T component, int entityId) {
-        var clazz = component.getClass();
+        this.addComponents(List.of(component), entityId);
+        return component;
+    }
 
-        if (!componentMap.containsKey(clazz)) {
+    /**
+     * Adds all the components at once, the entity is moved to its new archetype a single time.
+     */
+    public void addComponents(List<? extends Component> components, int entityId) {
+        var archetype = entityArchetypes.get(entityId);
+        var types = archetype == null ? new ComponentType[0] : archetype.getComponentTypes();
+
+        for (Component component : components) {
+            if (!componentMap.containsKey(component.getClass())) {
+                throw new IllegalStateException("Component type not registered " + component.getClass().getName());
+            }
+            var componentType = component.componentType();
+            if (!contains(types, componentType)) {
+                types = Arrays.copyOf(types, types.length + 1);
+                types[types.length - 1] = componentType;
+            }
+        }
+
+        var target = archetype != null && types.length == archetype.getComponentTypes().length ? archetype : getArchetype(types);
+        int row;
+        if (target == archetype) {
+            row = entityRows.get(entityId);
+        } else {
+            row = target.add(entityId);
+            if (archetype != null) {
+                int oldRow = entityRows.get(entityId);
+                for (ComponentType type : archetype.getComponentTypes()) {
+                    target.set(type, row, archetype.get(type, oldRow), archetype.getChangeTick(type, oldRow));
+                }
+                target.setEnabled(row, archetype.isEnabled(oldRow));
+                removeRow(archetype, entityRows.get(entityId));
+            }
+            entityArchetypes.set(entityId, target);
+            entityRows.set(entityId, row);
+        }
+
+        int currentTick = tick.get();
+        for (Component component : components) {
+            target.set(component.componentType(), row, component, currentTick);
+        }
+    }
+
+    /**
+     * Moves the entity to the archetype without the component, the old row is filled by the last row of the archetype.
+     * Returns the removed component or null if the entity did not have it.
+     */
+    public Component removeComponent(ComponentType componentType, int entityId) {
+        var archetype = entityArchetypes.get(entityId);
+        if (archetype == null || !archetype.has(componentType)) {
+            return null;
+        }
+        if (componentType == ComponentType.TRANSFORM) {
+            throw new IllegalArgumentException("Transform can not be removed from an entity");
+        }
+
+        int oldRow = entityRows.get(entityId);
+        var removed = archetype.get(componentType, oldRow);
+        var types = Arrays.stream(archetype.getComponentTypes()).filter(type -> type != componentType).toArray(ComponentType[]::new);
+
+        var target = getArchetype(types);
+        int row = target.add(entityId);
+        for (ComponentType type : types) {
+            target.set(type, row, archetype.get(type, oldRow), archetype.getChangeTick(type, oldRow));
+        }
+        target.setEnabled(row, archetype.isEnabled(oldRow));
+        removeRow(archetype, oldRow);
+        entityArchetypes.set(entityId, target);
+        entityRows.set(entityId, row);
+        return removed;
+    }
+
+    public <T extends Component> T getComponent(Class<T> clazz, int entityId) {
+        var componentType = componentTypes.get(clazz);
+        if (componentType == null) {
             throw new IllegalStateException("Component type not registered " + clazz.getName());
         }
 
-        entityComponentMap.get(clazz)[entityId] = component;
+        var archetype = entityArchetypes.get(entityId);
+        if (archetype == null) {
+            return null;
+        }
+        return clazz.cast(archetype.get(componentType, entityRows.get(entityId)));
+    }
 
+    /**
+     * Gets the component and marks it as changed at the current tick.
+     */
+    public <T extends Component> T getComponentMut(Class<T> clazz, int entityId) {
+        var component = getComponent(clazz, entityId);
+        if (component != null) {
+            entityArchetypes.get(entityId).markChanged(component.componentType(), entityRows.get(entityId), tick.get());
+        }
         return component;
     }
 
-    public <T extends Component> T getComponent(Class<T> clazz, int entityId) {
-        if (!componentMap.containsKey(clazz)) {
+    /**
+     * All components of the entity in the column order of its archetype.
+     */
+    public Component[] getComponents(int entityId) {
+        var archetype = entityArchetypes.get(entityId);
+        if (archetype == null) {
+            return new Component[0];
+        }
+        var types = archetype.getComponentTypes();
+        int row = entityRows.get(entityId);
+        var components = new Component[types.length];
+        for (int i = 0; i < types.length; i++) {
+            components[i] = archetype.get(types[i], row);
+        }
+        return components;
+    }
+
+    /**
+     * Keeps a copy of the component type's state at the last flip next to the current one.
+     */
+    public void setDoubleBuffered(ComponentType componentType) {
+        doubleBuffered.add(componentType);
+        for (Archetype archetype : archetypeList) {
+            archetype.setDoubleBuffered(componentType);
+        }
+    }
+
+    public boolean isDoubleBuffered(ComponentType componentType) {
+        return doubleBuffered.contains(componentType);
+    }
+
+    /**
+     * Makes the current state of the double buffered components the previous state. Only the rows changed since the
+     * last flip are copied, so a world where nothing moved flips for the cost of walking its chunks.
+     */
+    public void flip() {
+        if (doubleBuffered.isEmpty()) {
+            return;
+        }
+        int sinceTick = flipTick;
+        // changes made after the flip get a newer tick than the flip
+        flipTick = tick.getAndIncrement();
+        for (Archetype archetype : archetypeList) {
+            archetype.flip(sinceTick);
+        }
+    }
+
+    /**
+     * The tick of the last flip, only rows changed since then can differ from their previous state.
+     */
+    public int getFlipTick() {
+        return flipTick;
+    }
+
+    /**
+     * The component as it was at the last flip, the current component if it is not double buffered or was added since.
+     */
+    public <T extends Component> T getPreviousComponent(Class<T> clazz, int entityId) {
+        var archetype = entityArchetypes.get(entityId);
+        if (archetype == null) {
+            return null;
+        }
+        int column = archetype.getColumn(getComponentType(clazz));
+        if (column == -1) {
+            return null;
+        }
+        int row = entityRows.get(entityId);
+        return clazz.cast(archetype.getChunks().get(row / Archetype.CHUNK_SIZE).getPrevious(column, row % Archetype.CHUNK_SIZE));
+    }
+
+    public void setEnabled(int entityId, boolean enabled) {
+        var archetype = entityArchetypes.get(entityId);
+        int row = entityRows.get(entityId);
+        if (archetype != null && archetype.isEnabled(row) != enabled) {
+            archetype.setEnabled(row, enabled);
+            // the components appear or disappear for the systems, so they see them as changed
+            archetype.markRowChanged(row, tick.get());
+        }
+    }
+
+    public boolean isEnabled(int entityId) {
+        var archetype = entityArchetypes.get(entityId);
+        return archetype != null && archetype.isEnabled(entityRows.get(entityId));
+    }
+
+    public ComponentType getComponentType(Class<?> clazz) {
+        var componentType = componentTypes.get(clazz);
+        if (componentType == null) {
             throw new IllegalStateException("Component type not registered " + clazz.getName());
         }
+        return componentType;
+    }
 
-        return clazz.cast(entityComponentMap.get(clazz)[entityId]);
+    public void markChanged(ComponentType componentType, int entityId) {
+        var archetype = entityArchetypes.get(entityId);
+        if (archetype != null && archetype.has(componentType)) {
+            archetype.markChanged(componentType, entityRows.get(entityId), tick.get());
+        }
+    }
+
+    public int getTick() {
+        return tick.get();
+    }
+
+    /**
+     * Advances the change tick, called before every system update so that a system sees changes made after its previous run.
+     */
+    public int nextTick() {
+        return tick.incrementAndGet();
+    }
+
+    public void entityDestroyed(int entityId) {
+        var archetype = entityArchetypes.get(entityId);
+        if (archetype != null) {
+            removeRow(archetype, entityRows.get(entityId));
+            entityArchetypes.set(entityId, null);
+        }
+    }
+
+    public void forEachChunk(Signature signature, BiConsumer<Archetype, Chunk> consumer) {
+        query(signature).forEachChunk(consumer);
+    }
+
+    public Query query(Signature signature) {
+        var query = queries.get(signature);
+        if (query == null) {
+            query = new Query(signature.copy());
+            archetypeList.forEach(query::archetypeCreated);
+            queries.put(query.getSignature(), query);
+        }
+        return query;
+    }
+
+    public List<Archetype> getArchetypes() {
+        return archetypeList;
     }
 
     public Collection<Component> getComponents() {
         return componentMap.values();
     }
 
+    private void removeRow(Archetype archetype, int row) {
+        int movedEntity = archetype.swapRemove(row);
+        if (movedEntity != -1) {
+            entityRows.set(movedEntity, row);
+        }
+    }
+
+    private static boolean contains(ComponentType[] types, ComponentType componentType) {
+        for (ComponentType type : types) {
+            if (type == componentType) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Archetype getArchetype(ComponentType[] componentTypes) {
+        var signature = Signature.of(componentTypes);
+        var archetype = archetypes.get(signature);
+        if (archetype == null) {
+            var archetypeBlueprints = Arrays.stream(componentTypes).map(blueprints::get).toArray(Component[]::new);
+            archetype = new Archetype(signature, componentTypes, archetypeBlueprints);
+            for (ComponentType componentType : doubleBuffered) {
+                archetype.setDoubleBuffered(componentType);
+            }
+            archetypes.put(signature, archetype);
+            archetypeList.add(archetype);
+            for (Query query : queries.values()) {
+                query.archetypeCreated(archetype);
+            }
+        }
+        return archetype;
+    }
 }
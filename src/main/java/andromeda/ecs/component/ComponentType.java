@@ -1,18 +1,73 @@
 package andromeda.ecs.component;
 
-public enum ComponentType {
-    TRANSFORM(1),
-    MODEL(2),
-    POINT_LIGHT(4),
-    DIRECTIONAL_LIGHT(5),
-    CAMERA(6),
-    FPS_CONTROL(7),
-    RIGID_BODY(8),
-    PERSPECTIVE(9);
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ComponentType {
+    private static final List<ComponentType> types = new ArrayList<>();
+    // computeValue can run more than once for a class when threads race, the map keeps one type per class
+    private static final Map<Class<? extends Component>, ComponentType> byClass = new ConcurrentHashMap<>();
+    private static final ClassValue<ComponentType> registered = new ClassValue<>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected ComponentType computeValue(Class<?> componentClass) {
+            return create((Class<? extends Component>) componentClass);
+        }
+    };
+
+    public static final ComponentType TRANSFORM = register(Transform.class);
+    public static final ComponentType MODEL = register(EcsModel.class);
+    public static final ComponentType POINT_LIGHT = register(PointLightComponent.class);
+    public static final ComponentType DIRECTIONAL_LIGHT = register(DirectionalLightComponent.class);
+    public static final ComponentType CAMERA = register(CameraComponent.class);
+    public static final ComponentType FPS_CONTROL = register(FpsControl.class);
+    public static final ComponentType RIGID_BODY = register(RigidBody.class);
+    public static final ComponentType PERSPECTIVE = register(Perspective.class);
 
     public final int id;
+    public final Class<? extends Component> componentClass;
 
-    ComponentType(int id) {
+    private ComponentType(int id, Class<? extends Component> componentClass) {
         this.id = id;
+        this.componentClass = componentClass;
+    }
+
+    /**
+     * Returns the type of the component class, the next free id is assigned the first time a class is registered.
+     */
+    public static ComponentType register(Class<? extends Component> componentClass) {
+        return registered.get(componentClass);
+    }
+
+    /**
+     * Returns the type of the component class, or null if the class was never registered.
+     */
+    public static ComponentType find(Class<? extends Component> componentClass) {
+        return byClass.get(componentClass);
+    }
+
+    private static synchronized ComponentType create(Class<? extends Component> componentClass) {
+        var componentType = byClass.get(componentClass);
+        if (componentType == null) {
+            componentType = new ComponentType(types.size(), componentClass);
+            types.add(componentType);
+            byClass.put(componentClass, componentType);
+        }
+        return componentType;
+    }
+
+    public static ComponentType get(int id) {
+        return types.get(id);
+    }
+
+    public static int count() {
+        return types.size();
+    }
+
+    @Override
+    public String toString() {
+        return componentClass.getSimpleName();
     }
 }
@@ -0,0 +1,15 @@
+package andromeda.ecs.component;
+
+public abstract class PackedColumns {
+    private final int capacity;
+
+    protected PackedColumns(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public abstract void copy(int from, PackedColumns destination, int to);
+}
@@ -0,0 +1,17 @@
+package andromeda.ecs.component;
+
+/**
+ * A component whose data lives in primitive columns instead of in the object itself.
+ * The object is a flyweight pointing at one row of the columns, when the component is
+ * stored in a chunk the row belongs to the chunk, otherwise it belongs to a private single row column.
+ */
+public interface PackedComponent extends Component {
+
+    PackedColumns createColumns(int capacity);
+
+    PackedColumns getColumns();
+
+    int getIndex();
+
+    void bind(PackedColumns columns, int index);
+}
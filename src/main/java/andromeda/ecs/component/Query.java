@@ -0,0 +1,227 @@
+package andromeda.ecs.component;
+
+import andromeda.ecs.system.Signature;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * A cached view of all entities that have a set of components. The query keeps the list of matching
+ * archetypes up to date as new archetypes are created, so iterating it only walks the matching chunks.
+ */
+public class Query {
+
+    public interface Each1<A> {
+        void accept(int entityId, A a);
+    }
+
+    public interface Each2<A, B> {
+        void accept(int entityId, A a, B b);
+    }
+
+    public interface Each3<A, B, C> {
+        void accept(int entityId, A a, B b, C c);
+    }
+
+    public interface ChunkTask<S> {
+        void accept(Archetype archetype, Chunk chunk, S scratch);
+    }
+
+    private final Signature signature;
+    private final List<Archetype> archetypes;
+
+    Query(Signature signature) {
+        this.signature = signature;
+        this.archetypes = new ArrayList<>();
+    }
+
+    void archetypeCreated(Archetype archetype) {
+        if (archetype.getSignature().contains(signature)) {
+            archetypes.add(archetype);
+        }
+    }
+
+    public Signature getSignature() {
+        return signature;
+    }
+
+    public List<Archetype> getArchetypes() {
+        return archetypes;
+    }
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < archetypes.size(); i++) {
+            size += archetypes.get(i).size();
+        }
+        return size;
+    }
+
+    /**
+     * Visits every chunk including its disabled rows, see {@link Chunk#isEnabled(int)}.
+     */
+    public void forEachChunk(BiConsumer<Archetype, Chunk> consumer) {
+        for (int i = 0; i < archetypes.size(); i++) {
+            var archetype = archetypes.get(i);
+            var chunks = archetype.getChunks();
+            for (int c = 0; c < chunks.size(); c++) {
+                consumer.accept(archetype, chunks.get(c));
+            }
+        }
+    }
+
+    /**
+     * Processes the matching chunks on the common pool, the consumer must only touch the chunk it is given.
+     */
+    public void forEachChunkParallel(BiConsumer<Archetype, Chunk> consumer) {
+        forEachChunkParallel(() -> null, (archetype, chunk, scratch) -> consumer.accept(archetype, chunk));
+    }
+
+    /**
+     * Processes the matching chunks on the common pool, every chunk gets its own scratch object from the supplier.
+     * The scratch objects are returned in chunk order, independent of which thread processed which chunk.
+     */
+    @SuppressWarnings("unchecked")
+    public <S> List<S> forEachChunkParallel(Supplier<S> scratch, ChunkTask<S> task) {
+        List<Archetype> chunkArchetypes = new ArrayList<>();
+        List<Chunk> chunks = new ArrayList<>();
+        forEachChunk((archetype, chunk) -> {
+            chunkArchetypes.add(archetype);
+            chunks.add(chunk);
+        });
+
+        Object[] results = new Object[chunks.size()];
+        var range = IntStream.range(0, chunks.size());
+        (chunks.size() > 1 ? range.parallel() : range).forEach(i -> {
+            S s = scratch.get();
+            task.accept(chunkArchetypes.get(i), chunks.get(i), s);
+            results[i] = s;
+        });
+        return (List<S>) Arrays.asList(results);
+    }
+
+    /**
+     * Like {@link #forEachChunkParallel(Supplier, ChunkTask)} but folds the scratch objects in chunk order,
+     * so the result is the same on every run.
+     */
+    public <S, R> R reduceChunksParallel(Supplier<S> scratch, ChunkTask<S> task, R identity, BiFunction<R, S, R> reducer) {
+        R result = identity;
+        for (S s : forEachChunkParallel(scratch, task)) {
+            result = reducer.apply(result, s);
+        }
+        return result;
+    }
+
+    public void forEachEntity(IntConsumer consumer) {
+        for (int i = 0; i < archetypes.size(); i++) {
+            var chunks = archetypes.get(i).getChunks();
+            for (int c = 0; c < chunks.size(); c++) {
+                var chunk = chunks.get(c);
+                for (int e = 0; e < chunk.size(); e++) {
+                    if (chunk.isEnabled(e)) {
+                        consumer.accept(chunk.getEntity(e));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the entities whose component of the given type changed after the tick, chunks without changes are skipped.
+     */
+    public void forEachChangedSince(int tick, ComponentType componentType, IntConsumer consumer) {
+        for (int i = 0; i < archetypes.size(); i++) {
+            var archetype = archetypes.get(i);
+            int column = archetype.getColumn(componentType);
+            var chunks = archetype.getChunks();
+            for (int c = 0; c < chunks.size(); c++) {
+                var chunk = chunks.get(c);
+                if (!chunk.changedSince(column, tick)) {
+                    continue;
+                }
+                for (int e = 0; e < chunk.size(); e++) {
+                    if (chunk.isEnabled(e) && chunk.changedSince(column, e, tick)) {
+                        consumer.accept(chunk.getEntity(e));
+                    }
+                }
+            }
+        }
+    }
+
+    private ComponentType checkedType(Class<? extends Component> clazz) {
+        var type = ComponentType.find(clazz);
+        if (type == null || !signature.has(type)) {
+            throw new IllegalArgumentException("Component type not in query " + clazz.getName());
+        }
+        return type;
+    }
+
+    public <A extends Component> void forEach(Class<A> a, Each1<A> each) {
+        var typeA = checkedType(a);
+        for (int i = 0; i < archetypes.size(); i++) {
+            var archetype = archetypes.get(i);
+            int columnA = archetype.getColumn(typeA);
+            var chunks = archetype.getChunks();
+            for (int c = 0; c < chunks.size(); c++) {
+                var chunk = chunks.get(c);
+                var componentsA = chunk.getColumn(columnA);
+                for (int e = 0; e < chunk.size(); e++) {
+                    if (chunk.isEnabled(e)) {
+                        each.accept(chunk.getEntity(e), a.cast(componentsA[e]));
+                    }
+                }
+            }
+        }
+    }
+
+    public <A extends Component, B extends Component> void forEach(Class<A> a, Class<B> b, Each2<A, B> each) {
+        var typeA = checkedType(a);
+        var typeB = checkedType(b);
+        for (int i = 0; i < archetypes.size(); i++) {
+            var archetype = archetypes.get(i);
+            int columnA = archetype.getColumn(typeA);
+            int columnB = archetype.getColumn(typeB);
+            var chunks = archetype.getChunks();
+            for (int c = 0; c < chunks.size(); c++) {
+                var chunk = chunks.get(c);
+                var componentsA = chunk.getColumn(columnA);
+                var componentsB = chunk.getColumn(columnB);
+                for (int e = 0; e < chunk.size(); e++) {
+                    if (chunk.isEnabled(e)) {
+                        each.accept(chunk.getEntity(e), a.cast(componentsA[e]), b.cast(componentsB[e]));
+                    }
+                }
+            }
+        }
+    }
+
+    public <A extends Component, B extends Component, C extends Component> void forEach(Class<A> a, Class<B> b, Class<C> c, Each3<A, B, C> each) {
+        var typeA = checkedType(a);
+        var typeB = checkedType(b);
+        var typeC = checkedType(c);
+        for (int i = 0; i < archetypes.size(); i++) {
+            var archetype = archetypes.get(i);
+            int columnA = archetype.getColumn(typeA);
+            int columnB = archetype.getColumn(typeB);
+            int columnC = archetype.getColumn(typeC);
+            var chunks = archetype.getChunks();
+            for (int k = 0; k < chunks.size(); k++) {
+                var chunk = chunks.get(k);
+                var componentsA = chunk.getColumn(columnA);
+                var componentsB = chunk.getColumn(columnB);
+                var componentsC = chunk.getColumn(columnC);
+                for (int e = 0; e < chunk.size(); e++) {
+                    if (chunk.isEnabled(e)) {
+                        each.accept(chunk.getEntity(e), a.cast(componentsA[e]), b.cast(componentsB[e]), c.cast(componentsC[e]));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -2,9 +2,128 @@ package andromeda.ecs.component;
 
 import org.joml.Vector3f;
 
-public class RigidBody implements Component {
-    public Vector3f velocity = new Vector3f(0);
-    public float drag = 0.01f;
+public class RigidBody implements PackedComponent {
+    /**
+     * The collision shape, fitted to the bounds of the entity's model.
+     */
+    public enum Shape {
+        BOX, SPHERE
+    }
+
+    private RigidBodyColumns columns;
+    private int index;
+
+    public RigidBody() {
+        this.columns = new RigidBodyColumns(1);
+        this.index = 0;
+        this.columns.drag[0] = 0.01f;
+        this.columns.mass[0] = 1;
+        this.columns.restitution[0] = 0.2f;
+        this.columns.shape[0] = (byte) Shape.BOX.ordinal();
+        this.columns.sleepThreshold[0] = 0.1f;
+    }
+
+    public Vector3f getVelocity() {
+        return getVelocity(new Vector3f());
+    }
+
+    public Vector3f getVelocity(Vector3f dest) {
+        return dest.set(columns.velocityX[index], columns.velocityY[index], columns.velocityZ[index]);
+    }
+
+    public void setVelocity(Vector3f velocity) {
+        setVelocity(velocity.x, velocity.y, velocity.z);
+    }
+
+    /**
+     * Setting the velocity wakes the body.
+     */
+    public void setVelocity(float x, float y, float z) {
+        columns.velocityX[index] = x;
+        columns.velocityY[index] = y;
+        columns.velocityZ[index] = z;
+        wake();
+    }
+
+    public float getDrag() {
+        return columns.drag[index];
+    }
+
+    public void setDrag(float drag) {
+        columns.drag[index] = drag;
+    }
+
+    public float getMass() {
+        return columns.mass[index];
+    }
+
+    public void setMass(float mass) {
+        columns.mass[index] = mass;
+    }
+
+    public float getRestitution() {
+        return columns.restitution[index];
+    }
+
+    public void setRestitution(float restitution) {
+        columns.restitution[index] = restitution;
+    }
+
+    public Shape getShape() {
+        return Shape.values()[columns.shape[index]];
+    }
+
+    public void setShape(Shape shape) {
+        columns.shape[index] = (byte) shape.ordinal();
+    }
+
+    public float getSleepThreshold() {
+        return columns.sleepThreshold[index];
+    }
+
+    /**
+     * The speed below which the body starts to fall asleep, 0 keeps it awake.
+     */
+    public void setSleepThreshold(float sleepThreshold) {
+        columns.sleepThreshold[index] = sleepThreshold;
+    }
+
+    public boolean isSleeping() {
+        return columns.sleeping[index];
+    }
+
+    public void sleep() {
+        columns.velocityX[index] = 0;
+        columns.velocityY[index] = 0;
+        columns.velocityZ[index] = 0;
+        columns.sleeping[index] = true;
+    }
+
+    public void wake() {
+        columns.sleeping[index] = false;
+        columns.sleepTimer[index] = 0;
+    }
+
+    @Override
+    public PackedColumns createColumns(int capacity) {
+        return new RigidBodyColumns(capacity);
+    }
+
+    @Override
+    public PackedColumns getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public void bind(PackedColumns columns, int index) {
+        this.columns = (RigidBodyColumns) columns;
+        this.index = index;
+    }
 
     @Override
     public ComponentType componentType() {
@@ -19,8 +138,7 @@ public class RigidBody implements Component {
     @Override
     public Component copy() {
         var comp = new RigidBody();
-        comp.velocity = new Vector3f(this.velocity);
-        comp.drag = this.drag;
+        this.columns.copy(this.index, comp.columns, comp.index);
         return comp;
     }
 }
@@ -0,0 +1,43 @@
+package andromeda.ecs.component;
+
+public class RigidBodyColumns extends PackedColumns {
+    public final float[] velocityX, velocityY, velocityZ;
+    public final float[] drag;
+    // 0 mass makes the body immovable by collisions
+    public final float[] mass;
+    public final float[] restitution;
+    public final byte[] shape;
+    // a body sleeps once it stayed slower than its threshold for a while, sleeping bodies are not integrated
+    public final float[] sleepThreshold;
+    public final float[] sleepTimer;
+    public final boolean[] sleeping;
+
+    public RigidBodyColumns(int capacity) {
+        super(capacity);
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        velocityZ = new float[capacity];
+        drag = new float[capacity];
+        mass = new float[capacity];
+        restitution = new float[capacity];
+        shape = new byte[capacity];
+        sleepThreshold = new float[capacity];
+        sleepTimer = new float[capacity];
+        sleeping = new boolean[capacity];
+    }
+
+    @Override
+    public void copy(int from, PackedColumns destination, int to) {
+        var dest = (RigidBodyColumns) destination;
+        dest.velocityX[to] = velocityX[from];
+        dest.velocityY[to] = velocityY[from];
+        dest.velocityZ[to] = velocityZ[from];
+        dest.drag[to] = drag[from];
+        dest.mass[to] = mass[from];
+        dest.restitution[to] = restitution[from];
+        dest.shape[to] = shape[from];
+        dest.sleepThreshold[to] = sleepThreshold[from];
+        dest.sleepTimer[to] = sleepTimer[from];
+        dest.sleeping[to] = sleeping[from];
+    }
+}
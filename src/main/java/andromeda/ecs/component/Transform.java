@@ -7,27 +7,25 @@ import org.joml.Vector3f;
 import static andromeda.util.GraphicsMath.DEG2RAD;
 import static andromeda.util.GraphicsMath.RAD2DEG;
 
-public class Transform implements Component {
+public class Transform implements PackedComponent {
 
+    private TransformColumns columns;
+    private int index;
 
-
-    private Matrix4f localTransform;
-    private Vector3f position;
-    private Quaternionf rotation;
-    private Vector3f scale;
+    private final Matrix4f localTransform;
+    private final Quaternionf rotation;
     private int parentEntityId;
-    private boolean dirtyFlag;
     private String name;
 
     public Transform() {
-        this.localTransform = new Matrix4f();
+        this.columns = new TransformColumns(1);
+        this.index = 0;
+        this.columns.reset(0);
 
-        this.position = new Vector3f(0);
+        this.localTransform = new Matrix4f();
         this.rotation = new Quaternionf();
-        this.scale = new Vector3f(1);
 
         this.parentEntityId = -1;
-        this.dirtyFlag = true;
 
         this.name = null;
     }
@@ -37,17 +35,10 @@ public class Transform implements Component {
     }
 
     public Matrix4f getLocalTransform() {
-        if (dirtyFlag) {
-            dirtyFlag = false;
-            localTransform.set(this.getLocalTransformMatrix());
+        if (columns.dirty[index]) {
+            columns.updateLocalMatrix(index);
         }
-        return localTransform;
-    }
-
-
-    private float[] getLocalTransformMatrix() {
-        Matrix4f localTransform = new Matrix4f().translation(position).rotate(rotation).scale(scale);
-        return localTransform.get(new float[16]);
+        return localTransform.set(columns.localMatrix, index * TransformColumns.MATRIX_SIZE);
     }
 
     public void setLocalTransform(Matrix4f localTransform) {
@@ -56,11 +47,15 @@ public class Transform implements Component {
 
     public void setLocalTransform(float[] matrix) {
         Matrix4f m = new Matrix4f().set(matrix);
-        m.getUnnormalizedRotation(this.rotation);
-        m.getTranslation(this.position);
-        m.getScale(this.scale);
+        Vector3f v = new Vector3f();
+
+        setRotation(m.getUnnormalizedRotation(this.rotation));
+
+        m.getTranslation(v);
+        setPosition(v.x, v.y, v.z);
 
-        dirtyFlag = true;
+        m.getScale(v);
+        setScale(v.x, v.y, v.z);
     }
 
     public void setParentEntityId(int parentEntityId) {
@@ -68,54 +63,84 @@ public class Transform implements Component {
     }
 
     public void setPosition(Vector3f position) {
-        dirtyFlag = true;
-        this.position = position;
+        setPosition(position.x, position.y, position.z);
+    }
+
+    public void setPosition(float x, float y, float z) {
+        columns.positionX[index] = x;
+        columns.positionY[index] = y;
+        columns.positionZ[index] = z;
+        columns.dirty[index] = true;
     }
 
     public Vector3f getPosition() {
-        return position;
+        return getPosition(new Vector3f());
+    }
+
+    public Vector3f getPosition(Vector3f dest) {
+        return dest.set(columns.positionX[index], columns.positionY[index], columns.positionZ[index]);
     }
 
     public void setScale(Vector3f scale) {
-        dirtyFlag = true;
-        this.scale = scale;
+        setScale(scale.x, scale.y, scale.z);
+    }
+
+    public void setScale(float x, float y, float z) {
+        columns.scaleX[index] = x;
+        columns.scaleY[index] = y;
+        columns.scaleZ[index] = z;
+        columns.dirty[index] = true;
     }
 
     public Vector3f getScale() {
-        return scale;
+        return getScale(new Vector3f());
+    }
+
+    public Vector3f getScale(Vector3f dest) {
+        return dest.set(columns.scaleX[index], columns.scaleY[index], columns.scaleZ[index]);
     }
 
     public void rotateEuler(Vector3f eulerRotation) {
-        dirtyFlag = true;
         float x = eulerRotation.x % 360;
         float y = eulerRotation.y % 360;
         float z = eulerRotation.z % 360;
         Quaternionf change = new Quaternionf();
         change.rotateXYZ(x * DEG2RAD, y * DEG2RAD, z * DEG2RAD);
-        rotation.mul(change);
+        rotate(change);
     }
 
     public Vector3f getEulerRotation() {
-        return this.rotation.getEulerAnglesXYZ(new Vector3f()).mul(RAD2DEG);
+        return this.getRotation(this.rotation).getEulerAnglesXYZ(new Vector3f()).mul(RAD2DEG);
     }
 
     public Quaternionf getRotation() {
-        return this.rotation;
+        return getRotation(new Quaternionf());
+    }
+
+    public Quaternionf getRotation(Quaternionf dest) {
+        return dest.set(columns.rotationX[index], columns.rotationY[index], columns.rotationZ[index], columns.rotationW[index]);
+    }
+
+    public void setRotation(Quaternionf q) {
+        columns.rotationX[index] = q.x;
+        columns.rotationY[index] = q.y;
+        columns.rotationZ[index] = q.z;
+        columns.rotationW[index] = q.w;
+        columns.dirty[index] = true;
     }
 
     public Quaternionf rotateSlerp(Quaternionf q, float alpha) {
-        dirtyFlag = true;
-        return this.rotation.slerp(q, alpha);
+        setRotation(this.getRotation(this.rotation).slerp(q, alpha));
+        return getRotation();
     }
 
     public Quaternionf rotate(Quaternionf quaternionf) {
-        dirtyFlag = true;
-        return rotation.mul(quaternionf);
+        setRotation(this.getRotation(this.rotation).mul(quaternionf));
+        return getRotation();
     }
 
     public void translate(Vector3f translation) {
-        dirtyFlag = true;
-        this.position.add(translation, this.position);
+        setPosition(columns.positionX[index] + translation.x, columns.positionY[index] + translation.y, columns.positionZ[index] + translation.z);
     }
 
     public String getName() {
@@ -126,6 +151,27 @@ public class Transform implements Component {
         this.name = name;
     }
 
+    @Override
+    public PackedColumns createColumns(int capacity) {
+        return new TransformColumns(capacity);
+    }
+
+    @Override
+    public PackedColumns getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public void bind(PackedColumns columns, int index) {
+        this.columns = (TransformColumns) columns;
+        this.index = index;
+    }
+
     @Override
     public ComponentType componentType() {
         return ComponentType.TRANSFORM;
@@ -139,12 +185,8 @@ public class Transform implements Component {
     @Override
     public Component copy() {
         var comp = new Transform();
-        comp.localTransform = new Matrix4f(this.localTransform);
-        comp.position = new Vector3f(this.position);
-        comp.rotation = new Quaternionf(this.rotation);
-        comp.scale = new Vector3f(this.scale);
+        this.columns.copy(this.index, comp.columns, comp.index);
         comp.parentEntityId = this.parentEntityId;
-        comp.dirtyFlag = this.dirtyFlag;
         comp.name = this.name;
         return comp;
     }
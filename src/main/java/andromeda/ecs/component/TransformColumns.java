@@ -0,0 +1,129 @@
+package andromeda.ecs.component;
+
+import org.joml.Matrix4f;
+
+public class TransformColumns extends PackedColumns {
+    public static final int MATRIX_SIZE = 16;
+
+    public final float[] positionX, positionY, positionZ;
+    public final float[] rotationX, rotationY, rotationZ, rotationW;
+    public final float[] scaleX, scaleY, scaleZ;
+    // column major, MATRIX_SIZE floats per row
+    public final float[] localMatrix;
+    public final boolean[] dirty;
+
+    public TransformColumns(int capacity) {
+        super(capacity);
+        positionX = new float[capacity];
+        positionY = new float[capacity];
+        positionZ = new float[capacity];
+        rotationX = new float[capacity];
+        rotationY = new float[capacity];
+        rotationZ = new float[capacity];
+        rotationW = new float[capacity];
+        scaleX = new float[capacity];
+        scaleY = new float[capacity];
+        scaleZ = new float[capacity];
+        localMatrix = new float[capacity * MATRIX_SIZE];
+        dirty = new boolean[capacity];
+    }
+
+    public void reset(int i) {
+        positionX[i] = 0;
+        positionY[i] = 0;
+        positionZ[i] = 0;
+        rotationX[i] = 0;
+        rotationY[i] = 0;
+        rotationZ[i] = 0;
+        rotationW[i] = 1;
+        scaleX[i] = 1;
+        scaleY[i] = 1;
+        scaleZ[i] = 1;
+        dirty[i] = true;
+    }
+
+    public void updateLocalMatrices(int count) {
+        for (int i = 0; i < count; i++) {
+            if (dirty[i]) {
+                updateLocalMatrix(i);
+            }
+        }
+    }
+
+    // same result as new Matrix4f().translation(position).rotate(rotation).scale(scale)
+    public void updateLocalMatrix(int i) {
+        writeLocalMatrix(i, positionX[i], positionY[i], positionZ[i], rotationX[i], rotationY[i], rotationZ[i], rotationW[i],
+                scaleX[i], scaleY[i], scaleZ[i]);
+        dirty[i] = false;
+    }
+
+    /**
+     * Writes a blend of the state of the row in previous and its current state to dest, alpha 0 is the previous state.
+     * The rotation is blended linearly and normalized, which is close enough over one physics step. The local matrix
+     * of the row is not touched.
+     */
+    public Matrix4f interpolate(int i, TransformColumns previous, float alpha, Matrix4f dest) {
+        float x = previous.rotationX[i], y = previous.rotationY[i], z = previous.rotationZ[i], w = previous.rotationW[i];
+        // q and -q are the same rotation, blend towards the one on the same side
+        float sign = x * rotationX[i] + y * rotationY[i] + z * rotationZ[i] + w * rotationW[i] < 0 ? -1 : 1;
+        x += (sign * rotationX[i] - x) * alpha;
+        y += (sign * rotationY[i] - y) * alpha;
+        z += (sign * rotationZ[i] - z) * alpha;
+        w += (sign * rotationW[i] - w) * alpha;
+        float invLength = 1.0f / (float) Math.sqrt(x * x + y * y + z * z + w * w);
+
+        return dest.translationRotateScale(
+                lerp(previous.positionX[i], positionX[i], alpha),
+                lerp(previous.positionY[i], positionY[i], alpha),
+                lerp(previous.positionZ[i], positionZ[i], alpha),
+                x * invLength, y * invLength, z * invLength, w * invLength,
+                lerp(previous.scaleX[i], scaleX[i], alpha),
+                lerp(previous.scaleY[i], scaleY[i], alpha),
+                lerp(previous.scaleZ[i], scaleZ[i], alpha));
+    }
+
+    private static float lerp(float from, float to, float alpha) {
+        return from + (to - from) * alpha;
+    }
+
+    private void writeLocalMatrix(int i, float px, float py, float pz, float x, float y, float z, float w, float sx, float sy, float sz) {
+        float w2 = w * w, x2 = x * x, y2 = y * y, z2 = z * z;
+        float dzw = 2 * z * w, dxy = 2 * x * y, dxz = 2 * x * z;
+        float dyw = 2 * y * w, dyz = 2 * y * z, dxw = 2 * x * w;
+
+        int m = i * MATRIX_SIZE;
+        localMatrix[m] = (w2 + x2 - z2 - y2) * sx;
+        localMatrix[m + 1] = (dxy + dzw) * sx;
+        localMatrix[m + 2] = (dxz - dyw) * sx;
+        localMatrix[m + 3] = 0;
+        localMatrix[m + 4] = (dxy - dzw) * sy;
+        localMatrix[m + 5] = (y2 - z2 + w2 - x2) * sy;
+        localMatrix[m + 6] = (dyz + dxw) * sy;
+        localMatrix[m + 7] = 0;
+        localMatrix[m + 8] = (dyw + dxz) * sz;
+        localMatrix[m + 9] = (dyz - dxw) * sz;
+        localMatrix[m + 10] = (z2 - y2 - x2 + w2) * sz;
+        localMatrix[m + 11] = 0;
+        localMatrix[m + 12] = px;
+        localMatrix[m + 13] = py;
+        localMatrix[m + 14] = pz;
+        localMatrix[m + 15] = 1;
+    }
+
+    @Override
+    public void copy(int from, PackedColumns destination, int to) {
+        var dest = (TransformColumns) destination;
+        dest.positionX[to] = positionX[from];
+        dest.positionY[to] = positionY[from];
+        dest.positionZ[to] = positionZ[from];
+        dest.rotationX[to] = rotationX[from];
+        dest.rotationY[to] = rotationY[from];
+        dest.rotationZ[to] = rotationZ[from];
+        dest.rotationW[to] = rotationW[from];
+        dest.scaleX[to] = scaleX[from];
+        dest.scaleY[to] = scaleY[from];
+        dest.scaleZ[to] = scaleZ[from];
+        System.arraycopy(localMatrix, from * MATRIX_SIZE, dest.localMatrix, to * MATRIX_SIZE, MATRIX_SIZE);
+        dest.dirty[to] = dirty[from];
+    }
+}
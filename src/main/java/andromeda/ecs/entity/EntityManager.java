@@ -1,53 +1,120 @@
 package andromeda.ecs.entity;
 
 import andromeda.ecs.system.Signature;
+import andromeda.util.PagedArray;
+import andromeda.util.PagedIntArray;
+import andromeda.util.SparseSet;
 
-import java.util.*;
+import java.util.Arrays;
 
 public class EntityManager {
-    public static int MAX_ENTITIES = 5000;
-    public static int MAX_COMPONENTS = 32;
+    public static final long INVALID_HANDLE = -1;
 
-    private Signature[] signatures;
+    private PagedArray<Signature> signatures;
+    private PagedIntArray generations;
 
-    private Queue<Integer> availableIds;
+    private int[] availableIds;
+    private int availableCount;
+    private int nextId;
 
-    private Set<Integer> entities;
+    private SparseSet entities;
 
     public EntityManager() {
-        signatures = new Signature[MAX_ENTITIES];
-        availableIds = new LinkedList<>();
-        entities = new HashSet<>();
-        for (int i = 0; i < MAX_ENTITIES; i++) {
-            availableIds.add(i);
-        }
+        signatures = new PagedArray<>();
+        generations = new PagedIntArray(0);
+        availableIds = new int[64];
+        availableCount = 0;
+        nextId = 0;
+        entities = new SparseSet();
     }
 
-    public Set<Integer> getEntities() {
+    public SparseSet getEntities() {
         return entities;
     }
 
     public Signature getSignature(int entityId) {
-        return signatures[entityId];
+        return signatures.get(entityId);
     }
 
     public int createEntity() {
-        if (!availableIds.isEmpty()) {
-            var entityId = availableIds.remove();
-            signatures[entityId] = Signature.of();
-            entities.add(entityId);
-            return entityId;
-        } else {
-            System.err.println("Maximum number of entities reached!");
-            return 0;
-        }
+        int entityId = availableCount > 0 ? availableIds[--availableCount] : nextId++;
+        signatures.set(entityId, Signature.of());
+        entities.add(entityId);
+        return entityId;
     }
 
     public void destroyEntity(int entityId) {
-        if (entityId >= 0 && signatures[entityId] != null) {
-            signatures[entityId] = null;
-            availableIds.add(entityId);
+        if (entityId >= 0 && signatures.get(entityId) != null) {
+            signatures.set(entityId, null);
+            generations.set(entityId, generations.get(entityId) + 1);
+            if (availableCount == availableIds.length) {
+                availableIds = Arrays.copyOf(availableIds, availableIds.length * 2);
+            }
+            availableIds[availableCount++] = entityId;
             entities.remove(entityId);
         }
     }
+
+    /**
+     * Replaces all entities with the given ids, used to restore a snapshot. A restored id gets the generation of the
+     * snapshot only if that is newer than any it had, generations never go down so no handle is alive again once it died.
+     */
+    public void reset(int[] entityIds, int[] entityGenerations) {
+        entities.forEach(entityId -> {
+            signatures.set(entityId, null);
+            generations.set(entityId, generations.get(entityId) + 1);
+        });
+        entities.clear();
+
+        int maxId = -1;
+        for (int i = 0; i < entityIds.length; i++) {
+            int entityId = entityIds[i];
+            signatures.set(entityId, Signature.of());
+            generations.set(entityId, Math.max(entityGenerations[i], generations.get(entityId) + 1));
+            entities.add(entityId);
+            maxId = Math.max(maxId, entityId);
+        }
+
+        nextId = Math.max(nextId, maxId + 1);
+        availableCount = 0;
+        for (int entityId = nextId - 1; entityId >= 0; entityId--) {
+            if (signatures.get(entityId) == null) {
+                if (availableCount == availableIds.length) {
+                    availableIds = Arrays.copyOf(availableIds, availableIds.length * 2);
+                }
+                availableIds[availableCount++] = entityId;
+            }
+        }
+    }
+
+    public int getGeneration(int entityId) {
+        return generations.get(entityId);
+    }
+
+    public boolean isAlive(int entityId) {
+        return entityId >= 0 && signatures.get(entityId) != null;
+    }
+
+    /**
+     * A handle is the entity id tagged with the generation of the id, the generation is bumped every time the id
+     * is destroyed so a handle to a destroyed entity is never alive again even if the id is reused.
+     */
+    public long getHandle(int entityId) {
+        if (!isAlive(entityId)) {
+            return INVALID_HANDLE;
+        }
+        return ((long) generations.get(entityId) << 32) | entityId;
+    }
+
+    public boolean isAlive(long handle) {
+        if (handle == INVALID_HANDLE) {
+            return false;
+        }
+        int entityId = getEntityId(handle);
+        return isAlive(entityId) && generations.get(entityId) == (int) (handle >>> 32);
+    }
+
+    public static int getEntityId(long handle) {
+        return (int) handle;
+    }
 }
@@ -7,6 +7,7 @@ import andromeda.ecs.component.Perspective;
 import andromeda.ecs.component.Transform;
 import andromeda.projection.Camera;
 import andromeda.projection.EcsCamera;
+import andromeda.util.SparseSet;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
@@ -14,6 +15,8 @@ import org.joml.Vector4f;
 import java.util.Set;
 
 public class CameraSystem extends EcsSystem {
+    private static final Signature CAMERAS = Signature.of(ComponentType.CAMERA, ComponentType.TRANSFORM, ComponentType.PERSPECTIVE);
+
     private int mainCameraEntityId = -1;
     private TransformSystem transformSystem;
 
@@ -28,7 +31,7 @@ public class CameraSystem extends EcsSystem {
 
     @Override
     public Set<Signature> getSignatures() {
-        return Set.of(Signature.of(ComponentType.CAMERA, ComponentType.TRANSFORM, ComponentType.PERSPECTIVE));
+        return Set.of(CAMERAS);
     }
 
     @Override
@@ -37,9 +40,11 @@ public class CameraSystem extends EcsSystem {
     }
 
     private int getMainCameraEntityId() {
-        for (var entity : this.getEntities(Signature.of(ComponentType.CAMERA, ComponentType.TRANSFORM, ComponentType.PERSPECTIVE))) {
+        SparseSet cameras = this.getEntities(CAMERAS);
+        for (int i = 0; i < cameras.size(); i++) {
+            int entity = cameras.get(i);
             CameraComponent cameraComponent = ecs.getComponent(CameraComponent.class, entity);
-            if (cameraComponent.mainCamera)
+            if (cameraComponent.mainCamera && ecs.isEnabled(entity))
                 return entity;
         }
         return -1;
@@ -66,6 +71,21 @@ public class CameraSystem extends EcsSystem {
         return camera;
     }
 
+    @Override
+    public Set<ComponentType> reads() {
+        return Set.of(ComponentType.CAMERA, ComponentType.TRANSFORM, ComponentType.PERSPECTIVE);
+    }
+
+    @Override
+    public Set<ComponentType> writes() {
+        return Set.of();
+    }
+
+    @Override
+    public boolean mainThread() {
+        return false;
+    }
+
     @Override
     public SystemType type() {
         return SystemType.LOOP;
@@ -2,6 +2,7 @@ package andromeda.ecs.system;
 
 import andromeda.ecs.Ecs;
 import andromeda.ecs.component.EcsModel;
+import andromeda.ecs.component.RigidBody;
 import andromeda.ecs.component.Transform;
 import andromeda.geometry.Mesh;
 import andromeda.geometry.Primitives;
@@ -44,6 +45,18 @@ public class DebugSystem extends EcsSystem {
             disableAllDebugEntities(DebugType.Frustum);
             disableAllDebugEntities(DebugType.Point);
         }
+
+        // physics steps can run zero or several times a frame, so its input is read here
+        var physicsSystem = ecs.getSystem(PhysicsSystem.class);
+        if (Input.get().keyUp(KeyCode.KEY_K)) {
+            ecs.commands().addComponent(RigidBody.class, 1);
+        }
+        if (Input.get().keyUp(KeyCode.KEY_L) && ecs.getComponent(RigidBody.class, 1) != null) {
+            physicsSystem.launch(1);
+        }
+        if (Input.get().key(KeyCode.KEY_H)) {
+            physicsSystem.spawnCube();
+        }
     }
 
     public void disableAllDebugEntities(DebugType debugType) {
@@ -65,7 +78,6 @@ public class DebugSystem extends EcsSystem {
             var entityId = ecs.createEntity();
             ecs.addComponent(EcsModel.class, entityId);
             enabledDebugEntities.get(debugType).add(entityId);
-            ecs.enableEntity(entityId);
             return entityId;
         }
     }
@@ -85,7 +97,7 @@ public class DebugSystem extends EcsSystem {
             modelComponent.getMeshes().get(0).getMaterial().diffuse = color;
         }
 
-        var transform = ecs.getComponent(Transform.class, frustumDebugEntity);
+        var transform = ecs.getComponentMut(Transform.class, frustumDebugEntity);
         var pv = projection.mul(view, new Matrix4f());
         var inversePv = pv.invert(new Matrix4f());
         transform.setLocalTransform(inversePv);
@@ -107,9 +119,8 @@ public class DebugSystem extends EcsSystem {
             modelComponent.getMeshes().get(0).getMaterial().diffuse = color;
         }
 
-        var transform = ecs.getComponent(Transform.class, debugEntity);
-        transform.getLocalTransform().translate(point);
-        transform.getLocalTransform().scale(new Vector3f(0.1f));
+        var transform = ecs.getComponentMut(Transform.class, debugEntity);
+        transform.setLocalTransform(transform.getLocalTransform().translate(point).scale(new Vector3f(0.1f)));
     }
 
     public void createDebugSphereEntity(Vector3f color, Vector3f position, float radius) {
@@ -129,9 +140,8 @@ public class DebugSystem extends EcsSystem {
             modelComponent.getMeshes().get(0).getMaterial().diffuse = color;
         }
 
-        var transform = ecs.getComponent(Transform.class, debugEntity);
-        transform.getLocalTransform().translate(position);
-        transform.getLocalTransform().scale(new Vector3f(radius));
+        var transform = ecs.getComponentMut(Transform.class, debugEntity);
+        transform.setLocalTransform(transform.getLocalTransform().translate(position).scale(new Vector3f(radius)));
     }
 
     @Override
@@ -2,18 +2,33 @@ package andromeda.ecs.system;
 
 import andromeda.ecs.Ecs;
 import andromeda.ecs.component.ComponentType;
+import andromeda.util.SparseSet;
 
 import java.util.*;
+import java.util.function.IntConsumer;
 
 public abstract class EcsSystem {
     protected Ecs ecs;
-    private Map<Signature, Set<Integer>> entities;
+    private Map<Signature, SparseSet> entities;
+    private Signature[] signatures;
+    private SparseSet[] entitySets;
+    private Signature componentMask;
+    private int lastRunTick;
+    private int runTick;
+    private float sinceLastRun;
+    private float updateDelta;
 
     public EcsSystem(Ecs ecs) {
 
         this.entities = new HashMap<>();
         for(var signature : getSignatures()) {
-            entities.put(signature, new HashSet<>());
+            entities.put(signature, new SparseSet());
+        }
+        this.signatures = entities.keySet().toArray(Signature[]::new);
+        this.entitySets = Arrays.stream(signatures).map(entities::get).toArray(SparseSet[]::new);
+        this.componentMask = Signature.of();
+        for (Signature signature : signatures) {
+            this.componentMask.or(signature);
         }
         this.ecs = ecs;
     }
@@ -23,22 +38,121 @@ public abstract class EcsSystem {
     }
 
     public void removeEntity(int entityId) {
-        this.entities.values().forEach(e -> e.remove(entityId));
+        for (SparseSet entitySet : entitySets) {
+            entitySet.remove(entityId);
+        }
+    }
+
+    boolean uses(ComponentType componentType) {
+        return componentMask.has(componentType);
     }
 
-    public Set<Integer> getEntities(Signature signature) {
+    boolean contains(int entityId) {
+        for (SparseSet entitySet : entitySets) {
+            if (entitySet.contains(entityId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public SparseSet getEntities(Signature signature) {
         return this.entities.get(signature);
     }
 
-    public Set<Integer> getEntities(ComponentType... componentTypes) {
+    public SparseSet getEntities(ComponentType... componentTypes) {
         return this.getEntities(Signature.of(componentTypes));
     }
 
+    Signature[] signatures() {
+        return signatures;
+    }
+
+    public void forEachEntity(Signature signature, IntConsumer consumer) {
+        this.entities.get(signature).forEach(consumer);
+    }
+
     public void init() {
     }
 
+    void run(int tick) {
+        runTick = tick;
+        update();
+        lastRunTick = tick;
+    }
+
+    // called once per frame by the scheduler, true if the system is due to run this frame
+    boolean advance(float deltaTime) {
+        sinceLastRun += deltaTime;
+        if (sinceLastRun < updateInterval()) {
+            return false;
+        }
+        updateDelta = sinceLastRun;
+        sinceLastRun = 0;
+        return true;
+    }
+
+    /**
+     * The time in seconds since the previous update, longer than the frame time for systems with an update interval.
+     */
+    public float getUpdateDelta() {
+        return updateDelta;
+    }
+
+    /**
+     * The change tick the previous update started at, components changed after it are new to this system.
+     */
+    public int getLastRunTick() {
+        return lastRunTick;
+    }
+
+    /**
+     * The change tick the current update started at. Changes marked with it are seen by other systems but not by the
+     * next update of this system, which only looks at changes after its getLastRunTick.
+     */
+    public int getRunTick() {
+        return runTick;
+    }
+
+    /**
+     * Called when an entity starts matching one of the signatures of the system.
+     */
     public void onAdd(int entityId) {}
 
+    /**
+     * Called when an entity stops matching the system, before its components are removed.
+     */
+    public void onRemove(int entityId) {}
+
+    /**
+     * The component types read during update, null if the system can read anything.
+     */
+    public Set<ComponentType> reads() {
+        return null;
+    }
+
+    /**
+     * The component types written during update, null if the system can write anything.
+     */
+    public Set<ComponentType> writes() {
+        return null;
+    }
+
+    /**
+     * The minimum time in seconds between two updates, 0 runs the system every frame. Systems that conflict with this
+     * one do not wait for it in the frames it is skipped. Work that has to be spread over frames instead can use an EntityCursor.
+     */
+    public float updateInterval() {
+        return 0;
+    }
+
+    /**
+     * Systems touching GL, the window or making immediate structural changes have to run on the main thread.
+     */
+    public boolean mainThread() {
+        return true;
+    }
+
     public abstract Set<Signature> getSignatures();
 
     public abstract void update();
@@ -4,6 +4,7 @@ import andromeda.Controller;
 import andromeda.DeltaTime;
 import andromeda.config.GraphicsSettings;
 import andromeda.ecs.Ecs;
+import andromeda.ecs.Prefab;
 import andromeda.ecs.component.*;
 import andromeda.input.Input;
 import andromeda.input.KeyCode;
@@ -87,34 +88,21 @@ public class EditorSystem extends EcsSystem {
                 this.setSelectedEntityId(this.renderSystem.readEntityId(mPos));
             }
             if (Input.get().keyUp(KeyCode.KEY_D) && Input.get().key(KeyCode.KEY_LEFT_CONTROL) && selectedEntityId != -1) {
-                selectedEntityId = duplicateEntity(selectedEntityId, -1);
+                selectedEntityId = duplicateEntity(selectedEntityId);
             }
         }
     }
 
-    private int duplicateEntity(int entityId, int parentId) {
-        int newEntity = ecs.createEntity();
-
-        for (Component c : ecs.getComponents()) {
-            var component = ecs.getComponent(c.getClass(), entityId);
-            if (component != null) {
-                var newComponent = component.copy();
-                ecs.addComponent(newComponent, newEntity);
-            }
+    private int duplicateEntity(int entityId) {
+        var prefab = Prefab.of(ecs, entityId);
+        for (int i = 0; i < prefab.size(); i++) {
+            Transform transform = prefab.get(i, Transform.class);
+            if (transform.getName() != null && !transform.getName().endsWith("(copy)"))
+                transform.setName(transform.getName() + " (copy)");
         }
-        Transform transform = ecs.getComponent(Transform.class, newEntity);
-        if(!transform.getName().endsWith("(copy)"))
-            transform.setName(transform.getName() + " (copy)");
+        prefab.get(0, Transform.class).setLocalTransform(transformSystem.getGlobalTransform(entityId));
 
-        transformSystem.getChildren(entityId).forEach(child -> duplicateEntity(child, newEntity));
-        if(parentId != -1) {
-            transformSystem.setParent(newEntity, parentId);
-        }
-        else {
-            transform.setParentEntityId(-1);
-            transform.setLocalTransform(transformSystem.getGlobalTransform(entityId));
-        }
-        return newEntity;
+        return ecs.instantiate(prefab, 1)[0];
     }
 
     private boolean isUiInUse() {
@@ -148,7 +136,7 @@ public class EditorSystem extends EcsSystem {
                 var view = camera.getView().get(new float[16]);
                 var proj = camera.getProjectionWH(Screen.width, Screen.height).get(new float[16]);
 
-                var transform = ecs.getComponent(Transform.class, selectedEntityId);
+                var transform = ecs.getComponentMut(Transform.class, selectedEntityId);
                 Matrix4f parentGlobalTransform = transform.getParentEntityId() != -1 ? transformSystem.getGlobalTransform(transform.getParentEntityId()) : new Matrix4f();
                 Matrix4f entityLocalTransform = transform.getLocalTransform();
                 Matrix4f entityGlobalTransform = parentGlobalTransform.mul(entityLocalTransform, new Matrix4f());
@@ -189,6 +177,11 @@ public class EditorSystem extends EcsSystem {
         ImGui.text("Frame Time");
         ImGui.plotLines("##Frame Time", frame_times, frame_times.length, offset, "ms", 0, 32, new ImVec2(0, 80));
         ImGui.text("FPS: %s".formatted(1000.0f / averageFps(frame_times)));
+        var cullPass = renderSystem.getCullPass();
+        ImGui.text("Visible: %d Culled: %d".formatted(cullPass.getVisibleCount(), cullPass.getCulledCount()));
+        var shadowPass = renderSystem.getShadowPass();
+        ImGui.text("Shadow casters: %d %d %d %d".formatted(shadowPass.getCasterCount(0), shadowPass.getCasterCount(1),
+                shadowPass.getCasterCount(2), shadowPass.getCasterCount(3)));
         offset = (offset + 1) % frame_times.length;
         ImGui.end();
     }
@@ -206,6 +199,9 @@ public class EditorSystem extends EcsSystem {
         GraphicsSettings.Fog.power = pickFloatSlider("power", GraphicsSettings.Fog.power, 0.1f, 10);
         GraphicsSettings.Fog.depth = pickFloat("depth", GraphicsSettings.Fog.depth);
 
+        ImGui.text("Culling");
+        GraphicsSettings.Culling.frustum = pickBoolean("frustum", GraphicsSettings.Culling.frustum);
+
         ImGui.end();
     }
 
@@ -266,11 +262,36 @@ public class EditorSystem extends EcsSystem {
             }
 
             handleAddComponent(selectedEntityId);
+            ImGui.sameLine();
+            handleRemoveComponent(selectedEntityId);
         }
 
         ImGui.end();
     }
 
+    private void handleRemoveComponent(int entityId) {
+        Collection<Component> components = ecs.getComponents();
+
+        if (ImGui.button("Remove Component")) {
+            ImGui.openPopup("remove_component_popup");
+        }
+
+        if (ImGui.beginPopup("remove_component_popup")) {
+
+            ImGui.separatorText("Components");
+            for (Component component : components) {
+                if (component instanceof Transform || ecs.getComponent(component.getClass(), entityId) == null) {
+                    continue;
+                }
+                if (ImGui.selectable(component.getClass().getSimpleName())) {
+                    ecs.removeComponent(component.getClass(), entityId);
+                }
+            }
+
+            ImGui.endPopup();
+        }
+    }
+
     private void handleAddComponent(int entityId) {
         Collection<Component> components = ecs.getComponents();
 
@@ -292,51 +313,51 @@ public class EditorSystem extends EcsSystem {
     }
 
     private void handleEntitiesTree() {
-        List<TransformSystem.Node> transformHierarchy = transformSystem.getTransformHierarchy();
+        List<Integer> roots = transformSystem.getRoots();
 
-        for (var node : transformHierarchy) {
-            handleNode(node);
+        for (int entityId : roots) {
+            handleNode(entityId);
         }
     }
 
-    private void handleNode(TransformSystem.Node node) {
+    private void handleNode(int entityId) {
         int flags = ImGuiTreeNodeFlags.OpenOnArrow | ImGuiTreeNodeFlags.OpenOnDoubleClick;
-        boolean hasChildren = !node.children.isEmpty();
+        boolean hasChildren = transformSystem.hasChildren(entityId);
         if (!hasChildren) {
             flags |= ImGuiTreeNodeFlags.Leaf;
         }
 
-        if (node.entityId == selectedEntityId) {
+        if (entityId == selectedEntityId) {
             flags |= ImGuiTreeNodeFlags.Selected;
 
-        } else if (nodeHasSelectedChild(node)) {
+        } else if (nodeHasSelectedChild(entityId)) {
             ImGui.setNextItemOpen(true);
         }
 
-        String name = ecs.getComponent(Transform.class, node.entityId).getName();
+        String name = ecs.getComponent(Transform.class, entityId).getName();
 
-        name = name == null ? "entity_" + node.entityId : name;
+        name = name == null ? "entity_" + entityId : name;
 
-        boolean open = ImGui.treeNodeEx(Integer.toString(node.entityId), flags, name);
+        boolean open = ImGui.treeNodeEx(Integer.toString(entityId), flags, name);
 
         if (ImGui.isItemClicked()) {
-            selectedEntityId = selectedEntityId == node.entityId ? -1 : node.entityId;
+            selectedEntityId = selectedEntityId == entityId ? -1 : entityId;
         }
 
         if (open) {
             if (hasChildren) {
-                node.children.forEach(this::handleNode);
+                transformSystem.getChildren(entityId).forEach(this::handleNode);
             }
             ImGui.treePop();
         }
     }
 
-    private boolean nodeHasSelectedChild(TransformSystem.Node node) {
-        for (var n : node.children) {
-            if (n.entityId == selectedEntityId) {
+    private boolean nodeHasSelectedChild(int entityId) {
+        for (var child : transformSystem.getChildren(entityId)) {
+            if (child == selectedEntityId) {
                 return true;
             }
-            if (nodeHasSelectedChild(n)) {
+            if (nodeHasSelectedChild(child)) {
                 return true;
             }
         }
@@ -344,7 +365,7 @@ public class EditorSystem extends EcsSystem {
     }
 
     private void handleTransformComponent(int entityId) {
-        Transform transform = this.ecs.getComponent(Transform.class, entityId);
+        Transform transform = this.ecs.getComponentMut(Transform.class, entityId);
 
         Vector3f scale = new Vector3f(pickVector3f("scale", transform.getScale()));
         transform.setScale(scale);
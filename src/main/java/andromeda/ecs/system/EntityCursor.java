@@ -0,0 +1,47 @@
+package andromeda.ecs.system;
+
+import andromeda.util.SparseSet;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Spreads a pass over a set of entities across several updates. Every call continues where the previous one stopped
+ * and wraps around at the end. Entities removed in the middle of a pass can make it skip or repeat an entity.
+ */
+public class EntityCursor {
+    private int position;
+
+    public EntityCursor() {
+        this.position = 0;
+    }
+
+    /**
+     * Visits a 1/slices share of the entities, so a full pass takes slices calls.
+     */
+    public void forEachSlice(SparseSet entities, int slices, IntConsumer consumer) {
+        int count = (entities.size() + slices - 1) / slices;
+        for (int i = 0; i < count; i++) {
+            consumer.accept(next(entities));
+        }
+    }
+
+    /**
+     * Visits entities until the budget is spent. At least one entity is visited per call and no entity twice.
+     */
+    public void forEachWithinBudget(SparseSet entities, long budgetNanos, IntConsumer consumer) {
+        long deadline = System.nanoTime() + budgetNanos;
+        for (int i = 0; i < entities.size(); i++) {
+            consumer.accept(next(entities));
+            if (System.nanoTime() - deadline >= 0) {
+                return;
+            }
+        }
+    }
+
+    private int next(SparseSet entities) {
+        if (position >= entities.size()) {
+            position = 0;
+        }
+        return entities.get(position++);
+    }
+}
@@ -5,6 +5,7 @@ import andromeda.DeltaTime;
 import andromeda.ecs.Ecs;
 import andromeda.ecs.component.ComponentType;
 import andromeda.ecs.component.FpsControl;
+import andromeda.ecs.component.Query;
 import andromeda.ecs.component.Transform;
 import andromeda.input.Input;
 import andromeda.input.KeyCode;
@@ -18,13 +19,22 @@ import java.util.Set;
 import static andromeda.util.GraphicsMath.DEG2RAD;
 
 public class FpsControlSystem extends EcsSystem {
+    private static final Signature FPS_CONTROLS = Signature.of(ComponentType.FPS_CONTROL, ComponentType.TRANSFORM);
+
+    private Query fpsControls;
+
     public FpsControlSystem(Ecs ecs) {
         super(ecs);
     }
 
+    @Override
+    public void init() {
+        fpsControls = ecs.query(FPS_CONTROLS);
+    }
+
     @Override
     public Set<Signature> getSignatures() {
-        return Set.of(Signature.of(ComponentType.FPS_CONTROL, ComponentType.TRANSFORM));
+        return Set.of(FPS_CONTROLS);
     }
 
     @Override
@@ -41,17 +51,13 @@ public class FpsControlSystem extends EcsSystem {
 
     @Override
     public void update() {
-        for (var entity : this.getEntities(Signature.of(ComponentType.FPS_CONTROL, ComponentType.TRANSFORM))) {
-            updateCamera(entity);
-        }
+        fpsControls.forEach(Transform.class, FpsControl.class, this::updateCamera);
     }
 
-    private void updateCamera(int entityId) {
-        Transform transform = ecs.getComponent(Transform.class, entityId);
-        FpsControl fpsControl = ecs.getComponent(FpsControl.class, entityId);
-
+    private void updateCamera(int entityId, Transform transform, FpsControl fpsControl) {
         updatePosition(transform, fpsControl);
         calculateAngles(transform, fpsControl);
+        ecs.markChanged(ComponentType.TRANSFORM, entityId);
     }
 
     private void updatePosition(Transform transform, FpsControl fpsControl) {
@@ -127,6 +133,21 @@ public class FpsControlSystem extends EcsSystem {
         transform.rotateSlerp(targetRotation, fpsControl.rotationSmoothing);
     }
 
+    @Override
+    public Set<ComponentType> reads() {
+        return Set.of(ComponentType.TRANSFORM, ComponentType.FPS_CONTROL);
+    }
+
+    @Override
+    public Set<ComponentType> writes() {
+        return Set.of(ComponentType.TRANSFORM, ComponentType.FPS_CONTROL);
+    }
+
+    @Override
+    public boolean mainThread() {
+        return false;
+    }
+
     @Override
     public SystemType type() {
         return SystemType.LOOP;
@@ -1,108 +1,307 @@
 package andromeda.ecs.system;
 
-import andromeda.DeltaTime;
 import andromeda.ecs.Ecs;
+import andromeda.ecs.Prefab;
 import andromeda.ecs.component.*;
+import andromeda.geometry.BoundingBox;
+import andromeda.geometry.Geometry;
 import andromeda.geometry.Mesh;
-import andromeda.geometry.Model;
 import andromeda.geometry.Primitives;
-import andromeda.input.Input;
-import andromeda.input.KeyCode;
 import andromeda.material.Material;
+import andromeda.physics.BatchIntegrator;
+import andromeda.physics.CollisionWorld;
+import andromeda.util.PagedArray;
 import org.joml.Vector3f;
 
+import java.util.Arrays;
 import java.util.Random;
 import java.util.Set;
 
 public class PhysicsSystem extends EcsSystem {
+    private static final Signature RIGID_BODIES = Signature.of(ComponentType.TRANSFORM, ComponentType.RIGID_BODY);
+
+    private static final BoundingBox UNIT_BOUNDS = new BoundingBox(new Vector3f(-0.5f), new Vector3f(0.5f));
+
+    private Query rigidBodies;
+    private Prefab cubePrefab;
+    // object space bounds of the models of the bodies, taken when the body is added
+    private final PagedArray<BoundingBox> localBounds;
+    private final CollisionWorld collisionWorld;
+    // where the collision world bodies were found in the chunks, valid for the bodies set in the current step
+    private Chunk[] bodyChunks;
+    private int[] bodyRows;
+    private int[] bodyTransformColumns;
+    private int[] bodyRigidBodyColumns;
+    private int[] bodySteps;
+    private int step;
+
     public PhysicsSystem(Ecs ecs) {
         super(ecs);
+        localBounds = new PagedArray<>();
+        collisionWorld = new CollisionWorld();
+        bodyChunks = new Chunk[0];
+        bodyRows = new int[0];
+        bodyTransformColumns = new int[0];
+        bodyRigidBodyColumns = new int[0];
+        bodySteps = new int[0];
+        step = 0;
+    }
+
+    @Override
+    public void init() {
+        rigidBodies = ecs.query(RIGID_BODIES);
+
+        // uploaded once here, update may run off the main thread
+        Geometry cubeGeometry = Primitives.cube();
+        cubeGeometry.upload();
+
+        Transform transform = new Transform();
+        transform.setName("cube");
+        transform.setPosition(new Vector3f(0, 0.5f, 0));
+        var model = new EcsModel();
+        model.getMeshes().add(new Mesh(cubeGeometry, new Material()));
+
+        cubePrefab = new Prefab();
+        cubePrefab.add(-1, transform, model, new RigidBody());
     }
 
     @Override
     public Set<Signature> getSignatures() {
-        return Set.of(Signature.of(ComponentType.TRANSFORM, ComponentType.RIGID_BODY));
+        return Set.of(RIGID_BODIES);
     }
 
     @Override
-    public void update() {
-        for (int entityId : this.getEntities(Signature.of(ComponentType.TRANSFORM, ComponentType.RIGID_BODY))) {
-            updateEntity(entityId);
+    public void onAdd(int entityId) {
+        var bounds = new BoundingBox();
+        var model = ecs.getComponent(EcsModel.class, entityId);
+        if (model != null) {
+            for (Mesh mesh : model.getMeshes()) {
+                bounds.add(mesh.getGeometry().getBounds());
+            }
         }
+        localBounds.set(entityId, bounds.isEmpty() ? UNIT_BOUNDS : bounds);
+        addBody(entityId, ecs.getComponent(Transform.class, entityId), ecs.getComponent(RigidBody.class, entityId));
+    }
 
-        if (Input.get().keyUp(KeyCode.KEY_K)) {
-            ecs.addComponent(RigidBody.class, 1);
-        }
-        if(Input.get().keyUp(KeyCode.KEY_L)) {
-            RigidBody rigidBody = ecs.getComponent(RigidBody.class, 1);
-            Random random = new Random();
+    @Override
+    public void onRemove(int entityId) {
+        collisionWorld.remove(entityId);
+    }
 
-            rigidBody.velocity = new Vector3f(random.nextInt() % 20,  Math.abs(random.nextInt() % 10) + 10, random.nextInt() % 20).normalize().mul(10);
+    @Override
+    public void update() {
+        step++;
+        rigidBodies.forEachChunkParallel(this::updateChunk);
+        collide();
+    }
 
-            System.out.println(rigidBody.velocity.x);
-        }
+    // a chunk is stepped if one of its bodies was awake in the last step or its bodies were changed since,
+    // chunks where every body slept through the last step are skipped
+    private boolean isActive(Chunk chunk, int transformColumn, int rigidBodyColumn) {
+        return chunk.changedSince(rigidBodyColumn, getLastRunTick() - 1) || chunk.changedSince(transformColumn, getLastRunTick());
+    }
 
-        if(Input.get().key(KeyCode.KEY_H)) {
-            Random random = new Random();
+    // only the bodies that were integrated or changed since the last step are set in the collision world,
+    // the others are frozen in it as they were
+    private void collide() {
+        rigidBodies.forEachChunk((archetype, chunk) -> {
+            int transformColumn = archetype.getColumn(ComponentType.TRANSFORM);
+            int rigidBodyColumn = archetype.getColumn(ComponentType.RIGID_BODY);
+            if (!chunk.changedSince(rigidBodyColumn, getLastRunTick()) && !chunk.changedSince(transformColumn, getLastRunTick())) {
+                return;
+            }
+            Component[] transforms = chunk.getColumn(transformColumn);
+            Component[] bodies = chunk.getColumn(rigidBodyColumn);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (!chunk.changedSince(rigidBodyColumn, i, getLastRunTick()) && !chunk.changedSince(transformColumn, i, getLastRunTick())) {
+                    continue;
+                }
+                int entityId = chunk.getEntity(i);
+                if (!chunk.isEnabled(i)) {
+                    collisionWorld.remove(entityId);
+                    continue;
+                }
+                int b = addBody(entityId, (Transform) transforms[i], (RigidBody) bodies[i]);
+                if (b >= bodyRows.length) {
+                    int capacity = Math.max(64, Math.max(b + 1, bodyRows.length * 2));
+                    bodyChunks = Arrays.copyOf(bodyChunks, capacity);
+                    bodyRows = Arrays.copyOf(bodyRows, capacity);
+                    bodyTransformColumns = Arrays.copyOf(bodyTransformColumns, capacity);
+                    bodyRigidBodyColumns = Arrays.copyOf(bodyRigidBodyColumns, capacity);
+                    bodySteps = Arrays.copyOf(bodySteps, capacity);
+                }
+                bodyChunks[b] = chunk;
+                bodyRows[b] = i;
+                bodyTransformColumns[b] = transformColumn;
+                bodyRigidBodyColumns[b] = rigidBodyColumn;
+                bodySteps[b] = step;
+            }
+        });
+        if (collisionWorld.getAwakeCount() == 0) {
+            return;
+        }
 
-            int entityId = ecs.createEntity();
-            EcsModel ecsModel = ecs.addComponent(EcsModel.class, entityId);
+        collisionWorld.solve(getUpdateDelta());
+        for (int c = 0; c < collisionWorld.getChangedCount(); c++) {
+            int b = collisionWorld.getChanged(c);
+            Transform transform;
+            RigidBody rigidBody;
+            Chunk chunk = null;
+            if (bodySteps[b] == step) {
+                chunk = bodyChunks[b];
+                transform = (Transform) chunk.getColumn(bodyTransformColumns[b])[bodyRows[b]];
+                rigidBody = (RigidBody) chunk.getColumn(bodyRigidBodyColumns[b])[bodyRows[b]];
+            } else {
+                // woken by a contact, it was not set this step
+                int entityId = collisionWorld.getEntity(b);
+                transform = ecs.getComponentMut(Transform.class, entityId);
+                rigidBody = ecs.getComponentMut(RigidBody.class, entityId);
+            }
 
+            var transforms = (TransformColumns) transform.getColumns();
+            var bodies = (RigidBodyColumns) rigidBody.getColumns();
+            int t = transform.getIndex();
+            int r = rigidBody.getIndex();
+            float offsetX = collisionWorld.getOffsetX(b);
+            float offsetY = collisionWorld.getOffsetY(b);
+            float offsetZ = collisionWorld.getOffsetZ(b);
+            if (offsetX != 0 || offsetY != 0 || offsetZ != 0) {
+                transforms.positionX[t] += offsetX;
+                transforms.positionY[t] += offsetY;
+                transforms.positionZ[t] += offsetZ;
+                transforms.dirty[t] = true;
+                if (chunk != null) {
+                    chunk.markChanged(bodyTransformColumns[b], bodyRows[b], getRunTick());
+                }
+            }
+            bodies.velocityX[r] = collisionWorld.getVelocityX(b);
+            bodies.velocityY[r] = collisionWorld.getVelocityY(b);
+            bodies.velocityZ[r] = collisionWorld.getVelocityZ(b);
+            bodies.sleepTimer[r] = collisionWorld.getSleepTimer(b);
+            bodies.sleeping[r] = collisionWorld.isSleeping(b);
+            if (chunk != null) {
+                chunk.markChanged(bodyRigidBodyColumns[b], bodyRows[b], getRunTick());
+            }
+        }
+    }
 
-            var material = new Material();
-            float r = random.nextFloat() * 0.6f + 0.2f;
-            float g = random.nextFloat() * 0.6f + 0.2f;
-            float b = random.nextFloat() * 0.6f + 0.2f;
-            Vector3f color = new Vector3f(r,g,b);
+    // the world box of the model bounds, positions are treated as world positions like the integration does
+    private int addBody(int entityId, Transform transform, RigidBody rigidBody) {
+        var bounds = localBounds.get(entityId);
+        if (bounds == null) {
+            bounds = UNIT_BOUNDS;
+        }
+        var t = (TransformColumns) transform.getColumns();
+        var r = (RigidBodyColumns) rigidBody.getColumns();
+        int row = transform.getIndex();
+        int body = rigidBody.getIndex();
 
-            material.diffuse = color;
-            material.specular = color;
-            material.ambient = color;
+        float qx = t.rotationX[row], qy = t.rotationY[row], qz = t.rotationZ[row], qw = t.rotationW[row];
+        float r00 = 1 - 2 * (qy * qy + qz * qz), r01 = 2 * (qx * qy - qz * qw), r02 = 2 * (qx * qz + qy * qw);
+        float r10 = 2 * (qx * qy + qz * qw), r11 = 1 - 2 * (qx * qx + qz * qz), r12 = 2 * (qy * qz - qx * qw);
+        float r20 = 2 * (qx * qz - qy * qw), r21 = 2 * (qy * qz + qx * qw), r22 = 1 - 2 * (qx * qx + qy * qy);
 
-            Model model = new Model(new Mesh(Primitives.cube(), material));
+        float sx = t.scaleX[row], sy = t.scaleY[row], sz = t.scaleZ[row];
+        float cx = (bounds.min.x + bounds.max.x) * 0.5f * sx;
+        float cy = (bounds.min.y + bounds.max.y) * 0.5f * sy;
+        float cz = (bounds.min.z + bounds.max.z) * 0.5f * sz;
+        float hx = Math.abs((bounds.max.x - bounds.min.x) * 0.5f * sx);
+        float hy = Math.abs((bounds.max.y - bounds.min.y) * 0.5f * sy);
+        float hz = Math.abs((bounds.max.z - bounds.min.z) * 0.5f * sz);
 
-            ecsModel.getMeshes().addAll(model.getMeshes());
-            ecsModel.getMeshes().forEach(m -> m.getGeometry().upload());
+        return collisionWorld.set(entityId,
+                t.positionX[row] + r00 * cx + r01 * cy + r02 * cz,
+                t.positionY[row] + r10 * cx + r11 * cy + r12 * cz,
+                t.positionZ[row] + r20 * cx + r21 * cy + r22 * cz,
+                Math.abs(r00) * hx + Math.abs(r01) * hy + Math.abs(r02) * hz,
+                Math.abs(r10) * hx + Math.abs(r11) * hy + Math.abs(r12) * hz,
+                Math.abs(r20) * hx + Math.abs(r21) * hy + Math.abs(r22) * hz,
+                r.shape[body] == RigidBody.Shape.SPHERE.ordinal(),
+                r.velocityX[body], r.velocityY[body], r.velocityZ[body], r.mass[body], r.restitution[body],
+                r.sleepThreshold[body], r.sleepTimer[body], r.sleeping[body]);
+    }
 
-            Transform transform = ecs.getComponent(Transform.class, entityId);
-            transform.setName("cube");
-            transform.setPosition(new Vector3f(0, 0.5f, 0));
+    /**
+     * Spawns a cube with a random color and velocity.
+     */
+    public void spawnCube() {
+        Random random = new Random();
 
-            RigidBody rigidBody = ecs.addComponent(RigidBody.class, entityId);
+        float r = random.nextFloat() * 0.6f + 0.2f;
+        float g = random.nextFloat() * 0.6f + 0.2f;
+        float b = random.nextFloat() * 0.6f + 0.2f;
+        Vector3f color = new Vector3f(r,g,b);
 
-            float x = random.nextFloat() * 10 + 5;
-            float y = random.nextFloat() * 20 + 5;
-            float z = random.nextFloat() * 10 + 5;
+        var material = cubePrefab.get(0, EcsModel.class).getMeshes().get(0).getMaterial();
+        material.diffuse = color;
+        material.specular = color;
+        material.ambient = color;
 
-            rigidBody.velocity = new Vector3f(x, y, z);
-        }
-    }
+        float x = random.nextFloat() * 10 + 5;
+        float y = random.nextFloat() * 20 + 5;
+        float z = random.nextFloat() * 10 + 5;
 
-    private void updateEntity(int entityId) {
-        Transform transform = ecs.getComponent(Transform.class, entityId);
-        RigidBody rigidBody = ecs.getComponent(RigidBody.class, entityId);
+        cubePrefab.get(0, RigidBody.class).setVelocity(x, y, z);
 
-        float gravity = 9.82f;
-        Vector3f acceleration = new Vector3f(0, -1 * gravity * DeltaTime.deltaTime, 0);
-        rigidBody.velocity.add(acceleration);
+        ecs.commands().instantiate(cubePrefab);
+    }
 
-        float dragForceMagnitude = rigidBody.velocity.lengthSquared() * rigidBody.drag;
-        Vector3f dragForceVector = rigidBody.velocity.normalize(new Vector3f()).negate().mul(dragForceMagnitude * DeltaTime.deltaTime);
+    public void launch(int entityId) {
+        RigidBody rigidBody = ecs.getComponentMut(RigidBody.class, entityId);
+        Random random = new Random();
 
-        rigidBody.velocity.add(dragForceVector);
+        rigidBody.setVelocity(new Vector3f(random.nextInt() % 20,  Math.abs(random.nextInt() % 10) + 10, random.nextInt() % 20).normalize().mul(10));
+    }
 
-        Vector3f pos = new Vector3f(transform.getPosition());
+    private void updateChunk(Archetype archetype, Chunk chunk) {
+        int transformColumn = archetype.getColumn(ComponentType.TRANSFORM);
+        int rigidBodyColumn = archetype.getColumn(ComponentType.RIGID_BODY);
+        if (!isActive(chunk, transformColumn, rigidBodyColumn)) {
+            return;
+        }
 
-        if (pos.y < 0.5f) {
-            rigidBody.velocity = new Vector3f(0);
-            transform.setPosition(new Vector3f(pos.x, 0.5f, pos.z));
+        if (chunk.getPackedColumns(transformColumn) instanceof TransformColumns transforms
+                && chunk.getPackedColumns(rigidBodyColumn) instanceof RigidBodyColumns rigidBodies) {
+            boolean[] enabled = chunk.allEnabled() ? null : chunk.getEnabledRows();
+            BatchIntegrator.integrate(rigidBodies, transforms, enabled, chunk.size(), getUpdateDelta());
+            for (int i = 0; i < chunk.size(); i++) {
+                if (chunk.isEnabled(i) && BatchIntegrator.integrates(rigidBodies, i)) {
+                    chunk.markChanged(transformColumn, i, getRunTick());
+                    chunk.markChanged(rigidBodyColumn, i, getRunTick());
+                }
+            }
         } else {
-            Vector3f translation = new Vector3f(rigidBody.velocity);
-            translation.mul(DeltaTime.deltaTime);
-            transform.translate(translation);
+            Component[] transforms = chunk.getColumn(transformColumn);
+            Component[] rigidBodies = chunk.getColumn(rigidBodyColumn);
+            for (int i = 0; i < chunk.size(); i++) {
+                var transform = (Transform) transforms[i];
+                var rigidBody = (RigidBody) rigidBodies[i];
+                var bodies = (RigidBodyColumns) rigidBody.getColumns();
+                if (chunk.isEnabled(i) && BatchIntegrator.integrates(bodies, rigidBody.getIndex())) {
+                    BatchIntegrator.integrate(bodies, rigidBody.getIndex(),
+                            (TransformColumns) transform.getColumns(), transform.getIndex(), getUpdateDelta());
+                    chunk.markChanged(transformColumn, i, getRunTick());
+                    chunk.markChanged(rigidBodyColumn, i, getRunTick());
+                }
+            }
         }
     }
 
+    @Override
+    public Set<ComponentType> reads() {
+        return Set.of(ComponentType.TRANSFORM, ComponentType.RIGID_BODY);
+    }
+
+    @Override
+    public Set<ComponentType> writes() {
+        return Set.of(ComponentType.TRANSFORM, ComponentType.RIGID_BODY);
+    }
+
+    @Override
+    public boolean mainThread() {
+        return false;
+    }
+
     @Override
     public SystemType type() {
         return SystemType.PHYSICS;
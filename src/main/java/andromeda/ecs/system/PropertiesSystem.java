@@ -1,6 +1,8 @@
 package andromeda.ecs.system;
 
 import andromeda.ecs.Ecs;
+import andromeda.ecs.WorldSnapshot;
+import andromeda.ecs.component.ComponentType;
 import andromeda.input.Input;
 import andromeda.input.KeyCode;
 
@@ -10,6 +12,8 @@ public class PropertiesSystem extends EcsSystem {
 
 
     private boolean HIDE_GUI = false;
+    // the world as it was when play mode started, restored when it ends
+    private WorldSnapshot editSnapshot;
 
     public PropertiesSystem(Ecs ecs) {
         super(ecs);
@@ -34,12 +38,35 @@ public class PropertiesSystem extends EcsSystem {
 
     private void togglePlayMode() {
         HIDE_GUI = !HIDE_GUI;
+        if (HIDE_GUI) {
+            ecs.commands().defer(() -> editSnapshot = ecs.snapshot());
+        } else {
+            ecs.commands().defer(() -> {
+                ecs.restore(editSnapshot);
+                editSnapshot = null;
+            });
+        }
     }
 
     public boolean hideGUI() {
         return HIDE_GUI;
     }
 
+    @Override
+    public Set<ComponentType> reads() {
+        return Set.of();
+    }
+
+    @Override
+    public Set<ComponentType> writes() {
+        return Set.of();
+    }
+
+    @Override
+    public boolean mainThread() {
+        return false;
+    }
+
     @Override
     public SystemType type() {
         return SystemType.LOOP;
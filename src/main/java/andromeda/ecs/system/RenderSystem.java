@@ -15,6 +15,7 @@ import andromeda.projection.Camera;
 import andromeda.render.pipeline.*;
 import andromeda.scene.RenderTarget;
 import andromeda.util.Cascade;
+import andromeda.util.SparseSet;
 import andromeda.window.Screen;
 import org.joml.Vector2i;
 import org.joml.Vector3f;
@@ -29,6 +30,9 @@ import static org.lwjgl.opengl.GL11C.*;
 import static org.lwjgl.opengl.GL30C.*;
 
 public class RenderSystem extends EcsSystem {
+    private static final Signature MODELS = Signature.of(TRANSFORM, MODEL);
+    private static final Signature POINT_LIGHTS = Signature.of(TRANSFORM, POINT_LIGHT);
+    private static final Signature DIRECTIONAL_LIGHTS = Signature.of(TRANSFORM, DIRECTIONAL_LIGHT);
 
     private boolean DEBUG_SSAO = false;
 
@@ -89,22 +93,31 @@ public class RenderSystem extends EcsSystem {
         return -1;
     }
 
+    public CullPass getCullPass() {
+        return cullPass;
+    }
+
+    public ShadowPass getShadowPass() {
+        return shadowPass;
+    }
+
     @Override
     public Set<Signature> getSignatures() {
-        return Set.of(Signature.of(TRANSFORM, MODEL), Signature.of(TRANSFORM, POINT_LIGHT), Signature.of(TRANSFORM, DIRECTIONAL_LIGHT));
+        return Set.of(MODELS, POINT_LIGHTS, DIRECTIONAL_LIGHTS);
     }
 
     @Override
     public void update() {
-        List<RenderTarget> renderTargets = cullPass.cullRenderTargets(this.getEntities(TRANSFORM, MODEL));
         Camera camera = cameraSystem.getCurrentMainCamera();
+        List<RenderTarget> renderTargets = cullPass.cullRenderTargets(camera);
         geometryPass.render(camera, renderTargets, gBuffer);
 
         DirectionalLight directionalLight = getShadowCastingDirLight();
         var cascades = new Cascade[]{};
         if (directionalLight != null) {
             cascades = shadowPass.getCascades(camera, directionalLight);
-            shadowPass.render(renderTargets, camera, directionalLight, depthBuffer);
+            // objects outside the camera can still cast shadows into it
+            shadowPass.render(cullPass.getRenderTargets(), camera, directionalLight, depthBuffer);
         }
 
         ambientOcclusionPass.render(gBuffer, ambientOcclusionBuffer, ambientOcclusionBlurBuffer, camera);
@@ -157,13 +170,23 @@ public class RenderSystem extends EcsSystem {
 
     private List<Light> getLights() {
         List<Light> lights = new ArrayList<>();
-        for (int entity : this.getEntities(TRANSFORM, POINT_LIGHT)) {
+        SparseSet pointLights = this.getEntities(POINT_LIGHTS);
+        for (int i = 0; i < pointLights.size(); i++) {
+            int entity = pointLights.get(i);
+            if (!ecs.isEnabled(entity)) {
+                continue;
+            }
             var pointLightComponent = ecs.getComponent(PointLightComponent.class, entity);
             var transform = ecs.getComponent(Transform.class, entity);
             lights.add(new PointLight(transform.getPosition(), pointLightComponent.getColor(), pointLightComponent.getRadius(), pointLightComponent.intensity));
         }
 
-        for (int entity : this.getEntities(TRANSFORM, DIRECTIONAL_LIGHT)) {
+        SparseSet directionalLights = this.getEntities(DIRECTIONAL_LIGHTS);
+        for (int i = 0; i < directionalLights.size(); i++) {
+            int entity = directionalLights.get(i);
+            if (!ecs.isEnabled(entity)) {
+                continue;
+            }
             var directionalLightComponent = ecs.getComponent(DirectionalLightComponent.class, entity);
             var transform = ecs.getComponent(Transform.class, entity);
             var direction = new Vector4f(0, 1, 0, 0).mul(transform.getLocalTransform());
@@ -175,7 +198,12 @@ public class RenderSystem extends EcsSystem {
     }
 
     private DirectionalLight getShadowCastingDirLight() {
-        for (int entity : this.getEntities(TRANSFORM, DIRECTIONAL_LIGHT)) {
+        SparseSet directionalLights = this.getEntities(DIRECTIONAL_LIGHTS);
+        for (int i = 0; i < directionalLights.size(); i++) {
+            int entity = directionalLights.get(i);
+            if (!ecs.isEnabled(entity)) {
+                continue;
+            }
             var dirLight = ecs.getComponent(DirectionalLightComponent.class, entity);
             var transform = ecs.getComponent(Transform.class, entity);
             var direction = new Vector4f(0, 1, 0, 0).mul(transform.getLocalTransform());
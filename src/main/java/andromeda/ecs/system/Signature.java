@@ -1,55 +1,104 @@
 package andromeda.ecs.system;
 
 import andromeda.ecs.component.ComponentType;
-import andromeda.ecs.entity.EntityManager;
 
-import java.util.BitSet;
-import java.util.Objects;
+import java.util.Arrays;
 
 public class Signature {
+    private static final int WORD_SIZE = 64;
 
-    private final BitSet signature;
+    // bit i is set if the component type with id i is part of the signature, one long covers the first 64 types
+    private long[] words;
 
     private Signature(ComponentType... componentTypes) {
-        signature = getSignature(componentTypes);
+        words = new long[1];
+        for (ComponentType componentType : componentTypes) {
+            this.set(componentType);
+        }
         this.set(ComponentType.TRANSFORM);
     }
 
+    private Signature(long[] words) {
+        this.words = words;
+    }
+
     public void set(ComponentType componentType) {
-        signature.set(componentType.id);
+        int word = componentType.id / WORD_SIZE;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, word + 1);
+        }
+        words[word] |= 1L << (componentType.id % WORD_SIZE);
+    }
+
+    public void clear(ComponentType componentType) {
+        int word = componentType.id / WORD_SIZE;
+        if (word < words.length) {
+            words[word] &= ~(1L << (componentType.id % WORD_SIZE));
+        }
+    }
+
+    public void or(Signature signatureOther) {
+        long[] other = signatureOther.words;
+        if (other.length > words.length) {
+            words = Arrays.copyOf(words, other.length);
+        }
+        for (int i = 0; i < other.length; i++) {
+            words[i] |= other[i];
+        }
     }
 
     public boolean has(ComponentType componentType) {
-        return signature.get(componentType.id);
+        int word = componentType.id / WORD_SIZE;
+        return word < words.length && (words[word] & (1L << (componentType.id % WORD_SIZE))) != 0;
     }
 
     public boolean contains(Signature signatureOther) {
-        BitSet comparison = (BitSet) this.signature.clone();
-        comparison.and(signatureOther.signature);
-        return signatureOther.signature.cardinality() == comparison.cardinality();
+        long[] other = signatureOther.words;
+        if (other.length == 1) {
+            return (words[0] & other[0]) == other[0];
+        }
+        for (int i = 0; i < other.length; i++) {
+            long word = i < words.length ? words[i] : 0;
+            if ((word & other[i]) != other[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    public static Signature of(ComponentType... componentTypes) {
-        return new Signature(componentTypes);
+    public Signature copy() {
+        return new Signature(words.clone());
     }
 
-    public static BitSet getSignature(ComponentType... componentTypes) {
-        var signature = new BitSet(EntityManager.MAX_COMPONENTS);
-        for (ComponentType componentType : componentTypes) {
-            signature.set(componentType.id, true);
-        }
-        return signature;
+    public static Signature of(ComponentType... componentTypes) {
+        return new Signature(componentTypes);
     }
 
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         Signature that = (Signature) o;
-        return Objects.equals(signature, that.signature);
+        int length = Math.max(words.length, that.words.length);
+        for (int i = 0; i < length; i++) {
+            long a = i < words.length ? words[i] : 0;
+            long b = i < that.words.length ? that.words[i] : 0;
+            if (a != b) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(signature);
+        int hash = 1;
+        int last = words.length - 1;
+        while (last > 0 && words[last] == 0) {
+            last--;
+        }
+        for (int i = 0; i <= last; i++) {
+            hash = 31 * hash + Long.hashCode(words[i]);
+        }
+        return hash;
     }
 }
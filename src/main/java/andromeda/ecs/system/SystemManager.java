@@ -1,36 +1,97 @@
 package andromeda.ecs.system;
 
-import java.util.HashMap;
+import andromeda.ecs.component.ComponentType;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntSupplier;
 
 public class SystemManager {
     private Map<Class<?>, EcsSystem> systems;
+    private Map<SystemType, SystemScheduler> schedulers;
+    private final IntSupplier nextTick;
 
-    public SystemManager() {
-        this.systems = new HashMap<>();
+    public SystemManager(IntSupplier nextTick) {
+        this.systems = new LinkedHashMap<>();
+        this.schedulers = new EnumMap<>(SystemType.class);
+        this.nextTick = nextTick;
     }
 
     public void entitySignatureUpdate(int entityId, Signature signature) {
         for (EcsSystem ecsSystem : systems.values()) {
-            List<Signature> matchingSignatures = ecsSystem.getSignatures().stream().filter(signature::contains).toList();
+            boolean member = ecsSystem.contains(entityId);
+            boolean matched = false;
+            for (Signature systemSignature : ecsSystem.signatures()) {
+                if (signature.contains(systemSignature)) {
+                    ecsSystem.addEntity(systemSignature, entityId);
+                    matched = true;
+                }
+            }
+
+            if (!matched && member) {
+                ecsSystem.onRemove(entityId);
+                ecsSystem.removeEntity(entityId);
+            } else if (matched && !member) {
+                ecsSystem.onAdd(entityId);
+            }
+        }
+    }
+
+    /**
+     * Like {@link #entitySignatureUpdate(int, Signature)} but only re-matches the systems that use the removed component.
+     */
+    public void entityComponentRemoved(int entityId, Signature signature, ComponentType componentType) {
+        for (EcsSystem ecsSystem : systems.values()) {
+            if (!ecsSystem.uses(componentType) || !ecsSystem.contains(entityId)) {
+                continue;
+            }
 
-            if (matchingSignatures.isEmpty()) {
+            boolean matched = false;
+            for (Signature systemSignature : ecsSystem.signatures()) {
+                if (signature.contains(systemSignature)) {
+                    matched = true;
+                } else {
+                    ecsSystem.getEntities(systemSignature).remove(entityId);
+                }
+            }
+
+            if (!matched) {
+                ecsSystem.onRemove(entityId);
                 ecsSystem.removeEntity(entityId);
-            } else {
-                matchingSignatures.forEach(s -> ecsSystem.addEntity(s, entityId));
             }
         }
     }
 
     public void entityDestroyed(int entityId) {
         for (EcsSystem ecsSystem : systems.values()) {
-            ecsSystem.removeEntity(entityId);
+            if (ecsSystem.contains(entityId)) {
+                ecsSystem.onRemove(entityId);
+                ecsSystem.removeEntity(entityId);
+            }
         }
     }
 
     public <T extends EcsSystem> void registerSystem(T system) {
         systems.put(system.getClass(), system);
+        schedulers.clear();
+    }
+
+    public void update(SystemType type) {
+        getScheduler(type).update();
+    }
+
+    /**
+     * Updates the systems of the phase as if deltaTime seconds passed, used for fixed steps.
+     */
+    public void update(SystemType type, float deltaTime) {
+        getScheduler(type).update(deltaTime);
+    }
+
+    private SystemScheduler getScheduler(SystemType type) {
+        return schedulers.computeIfAbsent(type, t -> new SystemScheduler(getSystems(t), ForkJoinPool.commonPool(), nextTick));
     }
 
     public <T extends EcsSystem> T getSystem(Class<T> clazz) {
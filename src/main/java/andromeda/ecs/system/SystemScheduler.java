@@ -0,0 +1,116 @@
+package andromeda.ecs.system;
+
+import andromeda.DeltaTime;
+import andromeda.ecs.component.ComponentType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntSupplier;
+
+/**
+ * Runs the systems of one phase. A system waits for every earlier system it conflicts with,
+ * systems that do not conflict run concurrently on the pool. Main thread systems run on the calling thread in registration order.
+ * Systems with an update interval are skipped in the frames they are not due.
+ */
+public class SystemScheduler {
+
+    private final EcsSystem[] systems;
+    private final int[][] dependencies;
+    private final ExecutorService pool;
+    private final IntSupplier nextTick;
+
+    public SystemScheduler(List<EcsSystem> systems, ExecutorService pool, IntSupplier nextTick) {
+        this.systems = systems.toArray(EcsSystem[]::new);
+        this.dependencies = new int[this.systems.length][];
+        this.pool = pool;
+        this.nextTick = nextTick;
+
+        for (int i = 0; i < this.systems.length; i++) {
+            List<Integer> dependsOn = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                if (conflicts(this.systems[i], this.systems[j])) {
+                    dependsOn.add(j);
+                }
+            }
+            dependencies[i] = dependsOn.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public void update() {
+        update(DeltaTime.deltaTime);
+    }
+
+    public void update(float deltaTime) {
+        if (systems.length == 1 && systems[0].mainThread()) {
+            if (systems[0].advance(deltaTime)) {
+                systems[0].run(nextTick.getAsInt());
+            }
+            return;
+        }
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[systems.length];
+        for (int i = 0; i < systems.length; i++) {
+            var system = systems[i];
+            if (!system.advance(deltaTime)) {
+                futures[i] = CompletableFuture.completedFuture(null);
+                continue;
+            }
+            var before = CompletableFuture.allOf(dependencies(futures, i));
+            if (system.mainThread()) {
+                before.join();
+                system.run(nextTick.getAsInt());
+                futures[i] = CompletableFuture.completedFuture(null);
+            } else {
+                futures[i] = before.thenRunAsync(() -> system.run(nextTick.getAsInt()), pool);
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    int[] getDependencies(int system) {
+        return dependencies[system];
+    }
+
+    private CompletableFuture<?>[] dependencies(CompletableFuture<?>[] futures, int system) {
+        int[] dependsOn = dependencies[system];
+        CompletableFuture<?>[] result = new CompletableFuture<?>[dependsOn.length];
+        for (int i = 0; i < dependsOn.length; i++) {
+            result[i] = futures[dependsOn[i]];
+        }
+        return result;
+    }
+
+    static boolean conflicts(EcsSystem a, EcsSystem b) {
+        if (a.mainThread() && b.mainThread()) {
+            return false;
+        }
+        return writesAny(a.writes(), b.reads()) || writesAny(a.writes(), b.writes()) || writesAny(b.writes(), a.reads());
+    }
+
+    private static boolean writesAny(Set<ComponentType> writes, Set<ComponentType> accessed) {
+        if (writes == null) {
+            return accessed == null || !accessed.isEmpty();
+        }
+        if (accessed == null) {
+            return !writes.isEmpty();
+        }
+        for (ComponentType type : writes) {
+            if (accessed.contains(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
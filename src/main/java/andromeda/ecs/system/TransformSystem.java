@@ -2,49 +2,80 @@ package andromeda.ecs.system;
 
 import andromeda.ecs.Ecs;
 import andromeda.ecs.component.ComponentType;
+import andromeda.ecs.component.Query;
 import andromeda.ecs.component.Transform;
+import andromeda.ecs.component.TransformColumns;
+import andromeda.util.PagedArray;
+import andromeda.util.PagedIntArray;
+import andromeda.util.SparseSet;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
-import org.joml.Vector4f;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class TransformSystem extends EcsSystem {
+    private static final Signature TRANSFORMS = Signature.of(ComponentType.TRANSFORM);
+    private static final int PARALLEL_LEVEL_SIZE = 1024;
+    private static final int BATCH_SIZE = 256;
 
-    class Node {
-        int entityId;
-        Node parentNode;
-        List<Node> children;
+    // the hierarchy as flat arrays indexed by entity id, children are linked through their next sibling
+    private final PagedIntArray parents;
+    private final PagedIntArray firstChildren;
+    private final PagedIntArray lastChildren;
+    private final PagedIntArray nextSiblings;
 
-        public Node(int entityId) {
-            this.entityId = entityId;
-            this.children = new ArrayList<>();
-            this.parentNode = null;
-        }
-    }
+    private final PagedArray<Matrix4f> globals;
+    // the frame the global transform of an entity was last computed, 0 if it never was
+    private final PagedIntArray updatedFrames;
+    // the frame the local transform of an entity was last seen changing
+    private final PagedIntArray changedFrames;
 
-    private Map<Integer, Node> graph;
+    // all entities sorted by depth, the entities at depth d are order[levels[d]] to order[levels[d + 1] - 1]
+    private int[] order;
+    private int[] levels;
+    private int depth;
+    private boolean hierarchyChanged;
+    private int frame;
+
+    private Query transforms;
 
     public TransformSystem(Ecs ecs) {
         super(ecs);
-        graph = new HashMap<>();
+        parents = new PagedIntArray(-1);
+        firstChildren = new PagedIntArray(-1);
+        lastChildren = new PagedIntArray(-1);
+        nextSiblings = new PagedIntArray(-1);
+        globals = new PagedArray<>();
+        updatedFrames = new PagedIntArray(0);
+        changedFrames = new PagedIntArray(0);
+        order = new int[0];
+        levels = new int[1];
+        depth = 0;
+        hierarchyChanged = false;
+        frame = 0;
     }
 
-    public List<Node> getTransformHierarchy() {
-        return graph.values().stream().filter(n -> n.parentNode == null).toList();
+    @Override
+    public void init() {
+        transforms = ecs.query(TRANSFORMS);
     }
 
-    public void setParent(int entityId, int parentId) {
-        var transformComp = this.ecs.getComponent(Transform.class, entityId);
+    public List<Integer> getRoots() {
+        List<Integer> roots = new ArrayList<>();
+        getEntities(TRANSFORMS).forEach(entityId -> {
+            if (parents.get(entityId) == -1) {
+                roots.add(entityId);
+            }
+        });
+        return roots;
+    }
 
-        Node node = getNode(entityId);
-        if (node.parentNode != null) {
-            node.parentNode.children.remove(node);
-        }
+    public void setParent(int entityId, int parentId) {
+        var transformComp = this.ecs.getComponentMut(Transform.class, entityId);
 
-        Node parentNode = getNode(parentId);
-        parentNode.children.add(node);
-        node.parentNode = parentNode;
+        unlink(entityId);
+        link(entityId, parentId);
         transformComp.setParentEntityId(parentId);
     }
 
@@ -53,68 +84,231 @@ public class TransformSystem extends EcsSystem {
         if (!getEntities(signature).contains(entityId)) {
             super.addEntity(signature, entityId);
 
-            Node node = getNode(entityId);
-            var transformComp = this.ecs.getComponent(Transform.class, entityId);
-            if (transformComp.getParentEntityId() != -1) {
-                Node parentNode = this.getNode(transformComp.getParentEntityId());
-                node.parentNode = parentNode;
-                parentNode.children.add(node);
+            // the arrays written during propagation get their pages here, so the parallel levels never allocate them
+            if (globals.get(entityId) == null) {
+                globals.set(entityId, new Matrix4f());
             }
+            updatedFrames.set(entityId, 0);
+
+            var transformComp = this.ecs.getComponent(Transform.class, entityId);
+            link(entityId, transformComp.getParentEntityId());
         }
     }
 
     @Override
     public void removeEntity(int entityId) {
         super.removeEntity(entityId);
-        Node node = getNode(entityId);
 
-        for (Node child : new ArrayList<>(node.children)) {
-            ecs.destroyEntity(child.entityId);
+        for (int child : getChildren(entityId)) {
+            ecs.destroyEntity(child);
+        }
+
+        unlink(entityId);
+        firstChildren.set(entityId, -1);
+        lastChildren.set(entityId, -1);
+        updatedFrames.set(entityId, 0);
+    }
+
+    private void link(int entityId, int parentId) {
+        parents.set(entityId, parentId);
+        if (parentId != -1) {
+            int lastChild = lastChildren.get(parentId);
+            if (lastChild == -1) {
+                firstChildren.set(parentId, entityId);
+            } else {
+                nextSiblings.set(lastChild, entityId);
+            }
+            lastChildren.set(parentId, entityId);
         }
+        // recomputed with its subtree in the next update
+        changedFrames.set(entityId, frame + 1);
+        hierarchyChanged = true;
+    }
+
+    private void unlink(int entityId) {
+        int parentId = parents.get(entityId);
+        if (parentId != -1) {
+            int next = nextSiblings.get(entityId);
+            int previous = -1;
+            for (int sibling = firstChildren.get(parentId); sibling != entityId; sibling = nextSiblings.get(sibling)) {
+                previous = sibling;
+            }
 
-        removeNode(entityId);
-        if (node.parentNode != null) {
-            node.parentNode.children.remove(node);
+            if (previous == -1) {
+                firstChildren.set(parentId, next);
+            } else {
+                nextSiblings.set(previous, next);
+            }
+            if (lastChildren.get(parentId) == entityId) {
+                lastChildren.set(parentId, previous);
+            }
         }
+        parents.set(entityId, -1);
+        nextSiblings.set(entityId, -1);
+        hierarchyChanged = true;
     }
 
-    private Node getNode(int entityId) {
-        if (!graph.containsKey(entityId)) {
-            graph.put(entityId, new Node(entityId));
+    private void rebuildOrder() {
+        SparseSet entities = getEntities(TRANSFORMS);
+        if (order.length < entities.size()) {
+            order = new int[entities.size()];
         }
-        return graph.get(entityId);
+
+        int size = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            int entityId = entities.get(i);
+            if (parents.get(entityId) == -1) {
+                order[size++] = entityId;
+            }
+        }
+
+        depth = 0;
+        int levelStart = 0;
+        while (levelStart < size) {
+            setLevel(depth++, levelStart);
+            int levelEnd = size;
+            for (int i = levelStart; i < levelEnd; i++) {
+                for (int child = firstChildren.get(order[i]); child != -1; child = nextSiblings.get(child)) {
+                    order[size++] = child;
+                }
+            }
+            levelStart = levelEnd;
+        }
+        setLevel(depth, size);
+        hierarchyChanged = false;
     }
 
-    private void removeNode(int entityId) {
-        graph.remove(entityId);
+    private void setLevel(int level, int start) {
+        if (level >= levels.length) {
+            levels = Arrays.copyOf(levels, levels.length * 2);
+        }
+        levels[level] = start;
     }
 
     @Override
     public Set<Signature> getSignatures() {
-        return Set.of(Signature.of(ComponentType.TRANSFORM));
+        return Set.of(TRANSFORMS);
     }
 
     @Override
     public void update() {
+        frame++;
+
+        transforms.forEachChangedSince(getLastRunTick(), ComponentType.TRANSFORM, entityId -> changedFrames.set(entityId, frame));
+        transforms.forEachChunk((archetype, chunk) -> {
+            if (chunk.getPackedColumns(archetype.getColumn(ComponentType.TRANSFORM)) instanceof TransformColumns columns) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (columns.dirty[i]) {
+                        changedFrames.set(chunk.getEntity(i), frame);
+                    }
+                }
+            }
+        });
+        transforms.forEachChunkParallel((archetype, chunk) -> {
+            if (chunk.getPackedColumns(archetype.getColumn(ComponentType.TRANSFORM)) instanceof TransformColumns columns) {
+                columns.updateLocalMatrices(chunk.size());
+            }
+        });
+        if (hierarchyChanged) {
+            rebuildOrder();
+        }
+
+        // a level only depends on the level above it, so the entities of one level can be split over the pool
+        for (int level = 0; level < depth; level++) {
+            int start = levels[level];
+            int end = levels[level + 1];
+            if (end - start < PARALLEL_LEVEL_SIZE) {
+                propagate(start, end);
+            } else {
+                int batches = (end - start + BATCH_SIZE - 1) / BATCH_SIZE;
+                IntStream.range(0, batches).parallel().forEach(batch -> {
+                    int batchStart = start + batch * BATCH_SIZE;
+                    propagate(batchStart, Math.min(batchStart + BATCH_SIZE, end));
+                });
+            }
+        }
     }
 
+    private void propagate(int start, int end) {
+        for (int i = start; i < end; i++) {
+            int entityId = order[i];
+            int parentId = parents.get(entityId);
+            if (changedFrames.get(entityId) == frame || (parentId != -1 && updatedFrames.get(parentId) == frame)) {
+                updateGlobalTransform(entityId, parentId);
+            }
+        }
+    }
+
+    private void updateGlobalTransform(int entityId, int parentId) {
+        Matrix4f local = ecs.getComponent(Transform.class, entityId).getLocalTransform();
+        Matrix4f global = globals.get(entityId);
+        if (parentId != -1) {
+            globals.get(parentId).mul(local, global);
+        } else {
+            global.set(local);
+        }
+        updatedFrames.set(entityId, frame);
+    }
+
+    /**
+     * The global transform computed in the last update, it is shared and must not be modified.
+     */
     public Matrix4f getGlobalTransform(int entityId) {
+        if (updatedFrames.get(entityId) != 0) {
+            return globals.get(entityId);
+        }
+
+        // not propagated yet, the entity was added after the last update
         var transform = ecs.getComponent(Transform.class, entityId);
         Matrix4f local = transform.getLocalTransform();
         int parentEntity = transform.getParentEntityId();
         if (parentEntity != -1) {
             return getGlobalTransform(parentEntity).mul(local, new Matrix4f());
         }
+        return new Matrix4f(local);
+    }
+
+    /**
+     * Turns a local transform of the entity into a global one under the current global transform of its parent,
+     * the result is written to local.
+     */
+    public Matrix4f toGlobalTransform(int entityId, Matrix4f local) {
+        int parentId = parents.get(entityId);
+        if (parentId != -1) {
+            getGlobalTransform(parentId).mul(local, local);
+        }
         return local;
     }
 
     public Vector3f getGlobalPosition(int entityId) {
-        Matrix4f globalTransform = getGlobalTransform(entityId);
-        return new Vector4f(0, 0, 0, 1).mul(globalTransform).xyz(new Vector3f());
+        return getGlobalTransform(entityId).getTranslation(new Vector3f());
     }
 
     public List<Integer> getChildren(int entityId) {
-        return new ArrayList<>(getNode(entityId).children).stream().map(n -> n.entityId).toList();
+        List<Integer> children = new ArrayList<>();
+        for (int child = firstChildren.get(entityId); child != -1; child = nextSiblings.get(child)) {
+            children.add(child);
+        }
+        return children;
+    }
+
+    public boolean hasChildren(int entityId) {
+        return firstChildren.get(entityId) != -1;
+    }
+
+    @Override
+    public Set<ComponentType> reads() {
+        return Set.of(ComponentType.TRANSFORM);
+    }
+
+    @Override
+    public Set<ComponentType> writes() {
+        return Set.of(ComponentType.TRANSFORM);
+    }
+
+    @Override
+    public boolean mainThread() {
+        return false;
     }
 
     @Override
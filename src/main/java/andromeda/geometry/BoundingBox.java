@@ -0,0 +1,45 @@
+package andromeda.geometry;
+
+import org.joml.Vector3f;
+
+/**
+ * An axis aligned box, empty until a point is added.
+ */
+public class BoundingBox {
+    public final Vector3f min;
+    public final Vector3f max;
+
+    public BoundingBox() {
+        this.min = new Vector3f(Float.POSITIVE_INFINITY);
+        this.max = new Vector3f(Float.NEGATIVE_INFINITY);
+    }
+
+    public BoundingBox(Vector3f min, Vector3f max) {
+        this.min = new Vector3f(min);
+        this.max = new Vector3f(max);
+    }
+
+    public BoundingBox add(Vector3f point) {
+        min.min(point);
+        max.max(point);
+        return this;
+    }
+
+    public BoundingBox add(BoundingBox box) {
+        min.min(box.min);
+        max.max(box.max);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return min.x > max.x;
+    }
+
+    public Vector3f getCenter(Vector3f dest) {
+        return min.add(max, dest).mul(0.5f);
+    }
+
+    public Vector3f getHalfExtents(Vector3f dest) {
+        return max.sub(min, dest).mul(0.5f);
+    }
+}
@@ -1,5 +1,6 @@
 package andromeda.geometry;
 
+import andromeda.util.GraphicsMath;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.lwjgl.BufferUtils;
@@ -14,20 +15,31 @@ public class Geometry {
     private Vertex[] vertices = {};
     private int[] indices = {};
     private int m_vao, m_vbo, m_ebo;
+    private BoundingBox bounds;
+    private GraphicsMath.Sphere boundingSphere;
 
     public Geometry(Vector3f[] positions, int[] indices) {
         this.vertices = Arrays.stream(positions).map(Vertex::new).toArray(Vertex[]::new);
         this.indices = indices;
+        updateBounds();
     }
 
     public Geometry(Vector3f[] positions, Vector2f[] uvs, int[] indices) {
         this.vertices = calculateVertexData(positions, new Vector3f[]{}, uvs, indices);
         this.indices = indices;
+        updateBounds();
     }
 
     public Geometry(Vector3f[] positions, Vector3f[] normals, Vector2f[] uvs, int[] indices) {
         this.vertices = calculateVertexData(positions, normals, uvs, indices);
         this.indices = indices;
+        updateBounds();
+    }
+
+    public Geometry(Vertex[] vertices, int[] indices) {
+        this.vertices = vertices;
+        this.indices = indices;
+        updateBounds();
     }
 
     public void upload() {
@@ -184,9 +196,48 @@ public class Geometry {
         for (int i = 0; i < vertices.length; i++) {
             this.vertices[i].position = vertices[i];
         }
+        updateBounds();
+    }
+
+    // the sphere is centered on the box, the farthest vertex from the center gives a tighter radius than the box corners
+    private void updateBounds() {
+        bounds = new BoundingBox();
+        for (Vertex vertex : vertices) {
+            bounds.add(vertex.position);
+        }
+
+        boundingSphere = new GraphicsMath.Sphere();
+        boundingSphere.position = bounds.isEmpty() ? new Vector3f() : bounds.getCenter(new Vector3f());
+        float radiusSquared = 0;
+        for (Vertex vertex : vertices) {
+            radiusSquared = Math.max(radiusSquared, boundingSphere.position.distanceSquared(vertex.position));
+        }
+        boundingSphere.radius = (float) Math.sqrt(radiusSquared);
+    }
+
+    /**
+     * The object space bounds of the vertices, shared and must not be modified.
+     */
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
+    /**
+     * The object space sphere around the vertices, shared and must not be modified.
+     */
+    public GraphicsMath.Sphere getBoundingSphere() {
+        return boundingSphere;
     }
 
     public Vector3f[] getVertices() {
         return Arrays.stream(this.vertices).map(v -> v.position).toArray(Vector3f[]::new);
     }
+
+    public Vertex[] getVertexData() {
+        return vertices;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
 }
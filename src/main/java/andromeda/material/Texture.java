@@ -10,6 +10,8 @@ public class Texture {
     private int width, height;
     private int n_channels;
     private int texture_id;
+    private String path;
+    private boolean srgb;
 
     public Texture(int width, int height, int n_channels, int texture_id) {
         this.width = width;
@@ -35,6 +37,14 @@ public class Texture {
         return texture_id;
     }
 
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isSrgb() {
+        return srgb;
+    }
+
     private static Map<String, Texture> textures = new HashMap<>();
 
     public static Texture loadTexture(String texturePath) {
@@ -71,6 +81,8 @@ public class Texture {
             textureData.destroy();
 
             var texture = new Texture(textureData.width, textureData.height, textureData.n_channels, id);
+            texture.path = texturePath;
+            texture.srgb = srgb;
             textures.put(texturePath, texture);
         }
 
@@ -0,0 +1,74 @@
+package andromeda.physics;
+
+import andromeda.config.PhysicsSettings;
+import andromeda.ecs.component.RigidBodyColumns;
+import andromeda.ecs.component.TransformColumns;
+
+/**
+ * Applies gravity and drag to the packed rigid bodies and moves them by their velocity, bodies that end up below the
+ * ground are stopped on it. Rows are integrated in vector lanes when the jdk.incubator.vector module is added at
+ * startup, the plain loop gives the same result and is used otherwise.
+ */
+public class BatchIntegrator {
+    public static final float GRAVITY = 9.82f;
+    public static final float GROUND = 0.5f;
+
+    private static final boolean VECTOR_API = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    public static boolean isVectorized() {
+        return VECTOR_API && PhysicsSettings.vectorized;
+    }
+
+    /**
+     * Integrates the first count rows, skipping sleeping and static bodies and rows that are not enabled. Enabled may
+     * be null when every row is enabled.
+     */
+    public static void integrate(RigidBodyColumns bodies, TransformColumns transforms, boolean[] enabled, int count, float dt) {
+        int start = isVectorized() ? VectorIntegrator.integrate(bodies, transforms, enabled, count, dt) : 0;
+        integrateScalar(bodies, transforms, enabled, start, count, dt);
+    }
+
+    static void integrateScalar(RigidBodyColumns bodies, TransformColumns transforms, boolean[] enabled, int from, int to, float dt) {
+        for (int i = from; i < to; i++) {
+            if (integrates(bodies, i) && (enabled == null || enabled[i])) {
+                integrate(bodies, i, transforms, i, dt);
+            }
+        }
+    }
+
+    /**
+     * True if the body is moved by integrate, sleeping bodies and static bodies without mass stay where they are.
+     */
+    public static boolean integrates(RigidBodyColumns bodies, int body) {
+        return !bodies.sleeping[body] && bodies.mass[body] > 0;
+    }
+
+    /**
+     * Integrates a single body, the body and its transform may live in different columns.
+     */
+    public static void integrate(RigidBodyColumns bodies, int body, TransformColumns transforms, int transform, float dt) {
+        float[] vx = bodies.velocityX, vy = bodies.velocityY, vz = bodies.velocityZ;
+        float[] px = transforms.positionX, py = transforms.positionY, pz = transforms.positionZ;
+
+        vy[body] += -1 * GRAVITY * dt;
+
+        float lengthSquared = vx[body] * vx[body] + vy[body] * vy[body] + vz[body] * vz[body];
+        float dragForce = lengthSquared * bodies.drag[body] * dt;
+        float invLength = 1.0f / (float) Math.sqrt(lengthSquared);
+        vx[body] += -(vx[body] * invLength) * dragForce;
+        vy[body] += -(vy[body] * invLength) * dragForce;
+        vz[body] += -(vz[body] * invLength) * dragForce;
+
+        px[transform] += vx[body] * dt;
+        py[transform] += vy[body] * dt;
+        pz[transform] += vz[body] * dt;
+        // a body on the ground ends the step at rest so it can fall asleep
+        if (py[transform] < GROUND) {
+            vx[body] = 0;
+            vy[body] = 0;
+            vz[body] = 0;
+            py[transform] = GROUND;
+        }
+        transforms.dirty[transform] = true;
+    }
+}
@@ -0,0 +1,470 @@
+package andromeda.physics;
+
+import andromeda.config.PhysicsSettings;
+import andromeda.util.PagedIntArray;
+
+import java.util.Arrays;
+
+/**
+ * The rigid bodies and the collisions between them. Every entity keeps its body between steps, the physics system
+ * only sets the bodies that moved or changed, solve moves them apart and exchanges impulses, and the system copies
+ * the new positions and velocities of the changed bodies back. Bodies do not rotate, so a box stays axis aligned.
+ * <p>
+ * Touching bodies form islands that fall asleep together once all of them stayed slow for PhysicsSettings.sleepTime.
+ * Sleeping and static bodies are frozen in the broad phase and are only tested against awake bodies, a step costs
+ * the awake bodies and not the whole world. A sleeping body is not moved by contacts, an island that touches it and
+ * is still moving wakes it up, and so does setting it to a different place.
+ */
+public class CollisionWorld {
+    private static final int ITERATIONS = 2;
+    // penetration that is left alone so resting contacts do not jitter, and the part of the rest corrected per iteration
+    private static final float SLOP = 0.005f;
+    private static final float CORRECTION = 0.8f;
+    // slower impacts do not bounce, so resting contacts can settle and fall asleep
+    private static final float RESTITUTION_SPEED = 0.5f;
+
+    // the body of every entity, freed bodies are reused
+    private final PagedIntArray bodies;
+    private int count;
+    private int[] freeBodies;
+    private int freeCount;
+
+    private int[] entities;
+    // the center the body had when it was set, the difference to x, y, z is how far solve moved it
+    private float[] startX, startY, startZ;
+    private float[] x, y, z;
+    private float[] halfX, halfY, halfZ;
+    private boolean[] sphere;
+    private float[] vx, vy, vz;
+    private float[] inverseMass;
+    private float[] restitution;
+    private float[] minX, minY, minZ, maxX, maxY, maxZ;
+    private float[] sleepThreshold;
+    private float[] sleepTimer;
+    private boolean[] sleeping;
+    // the inverse mass used by contacts, 0 for sleeping bodies
+    private float[] contactInverseMass;
+    // union find parents of the islands, the slowest timer of every island root and the step they were reset in
+    private int[] islands;
+    private float[] islandTimers;
+    private int[] islandSteps;
+    private boolean[] touching;
+    private int step;
+
+    // the bodies that were awake or woke up in the last solve, and the bodies in an island this step
+    private int[] changed;
+    private int changedCount;
+    private int[] involved;
+    private int involvedCount;
+
+    private final SweepAndPrune broadPhase;
+    // normal from a to b and penetration depth of the last narrow phase test
+    private float normalX, normalY, normalZ, penetration;
+
+    public CollisionWorld() {
+        this.bodies = new PagedIntArray(-1);
+        this.count = 0;
+        this.freeBodies = new int[16];
+        this.freeCount = 0;
+        this.broadPhase = new SweepAndPrune();
+        this.touching = new boolean[0];
+        this.step = 0;
+        this.changed = new int[64];
+        this.changedCount = 0;
+        this.involved = new int[64];
+        this.involvedCount = 0;
+        allocate(64);
+    }
+
+    /**
+     * Sets the body of the entity centered at x, y, z with the given half extents, a sphere uses the largest half
+     * extent as its radius. Bodies with zero mass are not moved by collisions. A sleeping body that is set to a
+     * different place or size wakes up. Returns the index of the body.
+     */
+    public int set(int entityId, float x, float y, float z, float halfX, float halfY, float halfZ, boolean sphere,
+                   float vx, float vy, float vz, float mass, float restitution,
+                   float sleepThreshold, float sleepTimer, boolean sleeping) {
+        int i = bodies.get(entityId);
+        boolean added = i == -1;
+        if (added) {
+            i = freeCount > 0 ? freeBodies[--freeCount] : count++;
+            if (i == entities.length) {
+                allocate(i * 2);
+            }
+            bodies.set(entityId, i);
+            entities[i] = entityId;
+        }
+        if (sphere) {
+            float radius = Math.max(halfX, Math.max(halfY, halfZ));
+            halfX = halfY = halfZ = radius;
+        }
+        if (sleeping && !added && (this.x[i] != x || this.y[i] != y || this.z[i] != z
+                || this.halfX[i] != halfX || this.halfY[i] != halfY || this.halfZ[i] != halfZ)) {
+            sleeping = false;
+            sleepTimer = 0;
+        }
+
+        this.startX[i] = this.x[i] = x;
+        this.startY[i] = this.y[i] = y;
+        this.startZ[i] = this.z[i] = z;
+        this.halfX[i] = halfX;
+        this.halfY[i] = halfY;
+        this.halfZ[i] = halfZ;
+        this.sphere[i] = sphere;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.vz[i] = vz;
+        this.inverseMass[i] = mass > 0 ? 1 / mass : 0;
+        this.restitution[i] = restitution;
+        this.sleepThreshold[i] = sleepThreshold;
+        this.sleepTimer[i] = sleepTimer;
+        this.sleeping[i] = sleeping;
+        updateBounds(i);
+        if (inverseMass[i] > 0 && !sleeping) {
+            contactInverseMass[i] = inverseMass[i];
+            broadPhase.activate(i);
+        } else {
+            contactInverseMass[i] = 0;
+            broadPhase.freeze(i, minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i]);
+        }
+        return i;
+    }
+
+    public void remove(int entityId) {
+        int i = bodies.get(entityId);
+        if (i == -1) {
+            return;
+        }
+        broadPhase.remove(i);
+        bodies.set(entityId, -1);
+        if (freeCount == freeBodies.length) {
+            freeBodies = Arrays.copyOf(freeBodies, freeCount * 2);
+        }
+        freeBodies[freeCount++] = i;
+    }
+
+    /**
+     * The body of the entity, -1 if it has none.
+     */
+    public int getBody(int entityId) {
+        return bodies.get(entityId);
+    }
+
+    public int getAwakeCount() {
+        return broadPhase.getActiveCount();
+    }
+
+    /**
+     * Resolves the collisions of the awake bodies, advances their sleep timers by dt and returns the number of
+     * overlapping pairs. The bodies whose state changed are listed by getChanged.
+     */
+    public int solve(float dt) {
+        step++;
+        changedCount = 0;
+        involvedCount = 0;
+        int[] active = broadPhase.getActive();
+        for (int a = 0; a < broadPhase.getActiveCount(); a++) {
+            int i = active[a];
+            updateBounds(i);
+            addChanged(i);
+        }
+
+        int pairCount = broadPhase.update(minX, minY, minZ, maxX, maxY, maxZ);
+        int[] pairs = broadPhase.getPairs();
+        if (touching.length < pairCount) {
+            touching = new boolean[pairs.length / 2];
+        }
+        Arrays.fill(touching, 0, pairCount, false);
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int p = 0; p < pairCount; p++) {
+                int a = pairs[p * 2];
+                int b = pairs[p * 2 + 1];
+                if (contactInverseMass[a] + contactInverseMass[b] > 0 && collide(a, b)) {
+                    touching[p] = true;
+                    resolve(a, b);
+                }
+            }
+        }
+        updateSleep(dt, pairs, pairCount);
+        return pairCount;
+    }
+
+    private void updateSleep(float dt, int[] pairs, int pairCount) {
+        int awake = changedCount;
+        for (int c = 0; c < awake; c++) {
+            joinIsland(changed[c]);
+        }
+        // static bodies do not join islands, otherwise the whole pile on the ground would be one island
+        for (int p = 0; p < pairCount; p++) {
+            int a = pairs[p * 2];
+            int b = pairs[p * 2 + 1];
+            if (touching[p] && inverseMass[a] > 0 && inverseMass[b] > 0) {
+                joinIsland(a);
+                joinIsland(b);
+                islands[find(a)] = find(b);
+            }
+        }
+
+        for (int c = 0; c < awake; c++) {
+            int i = changed[c];
+            float speedSquared = vx[i] * vx[i] + vy[i] * vy[i] + vz[i] * vz[i];
+            if (sleepThreshold[i] > 0 && speedSquared < sleepThreshold[i] * sleepThreshold[i]) {
+                sleepTimer[i] += dt;
+            } else {
+                sleepTimer[i] = 0;
+            }
+            int island = find(i);
+            islandTimers[island] = Math.min(islandTimers[island], sleepTimer[i]);
+        }
+
+        for (int n = 0; n < involvedCount; n++) {
+            int i = involved[n];
+            boolean asleep = islandTimers[find(i)] >= PhysicsSettings.sleepTime;
+            if (asleep && !sleeping[i]) {
+                sleeping[i] = true;
+                vx[i] = vy[i] = vz[i] = 0;
+                contactInverseMass[i] = 0;
+                updateBounds(i);
+                broadPhase.freeze(i, minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i]);
+            } else if (!asleep && sleeping[i]) {
+                sleeping[i] = false;
+                sleepTimer[i] = 0;
+                // it did not move while asleep, its position was written back when it fell asleep
+                startX[i] = x[i];
+                startY[i] = y[i];
+                startZ[i] = z[i];
+                contactInverseMass[i] = inverseMass[i];
+                broadPhase.activate(i);
+                addChanged(i);
+            }
+        }
+    }
+
+    private void joinIsland(int i) {
+        if (islandSteps[i] == step) {
+            return;
+        }
+        islandSteps[i] = step;
+        islands[i] = i;
+        islandTimers[i] = Float.POSITIVE_INFINITY;
+        if (involvedCount == involved.length) {
+            involved = Arrays.copyOf(involved, involvedCount * 2);
+        }
+        involved[involvedCount++] = i;
+    }
+
+    private int find(int i) {
+        while (islands[i] != i) {
+            islands[i] = islands[islands[i]];
+            i = islands[i];
+        }
+        return i;
+    }
+
+    private void addChanged(int i) {
+        if (changedCount == changed.length) {
+            changed = Arrays.copyOf(changed, changedCount * 2);
+        }
+        changed[changedCount++] = i;
+    }
+
+    private void updateBounds(int i) {
+        minX[i] = x[i] - halfX[i];
+        minY[i] = y[i] - halfY[i];
+        minZ[i] = z[i] - halfZ[i];
+        maxX[i] = x[i] + halfX[i];
+        maxY[i] = y[i] + halfY[i];
+        maxZ[i] = z[i] + halfZ[i];
+    }
+
+    /**
+     * The number of bodies that were awake in the last solve or woke up during it, including the ones that fell asleep.
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getChanged(int index) {
+        return changed[index];
+    }
+
+    boolean collide(int a, int b) {
+        if (sphere[a] && sphere[b]) {
+            return collideSpheres(a, b);
+        } else if (sphere[a]) {
+            return collideSphereBox(a, b, 1);
+        } else if (sphere[b]) {
+            return collideSphereBox(b, a, -1);
+        }
+        return collideBoxes(a, b);
+    }
+
+    private boolean collideBoxes(int a, int b) {
+        float dx = x[b] - x[a], dy = y[b] - y[a], dz = z[b] - z[a];
+        float overlapX = halfX[a] + halfX[b] - Math.abs(dx);
+        float overlapY = halfY[a] + halfY[b] - Math.abs(dy);
+        float overlapZ = halfZ[a] + halfZ[b] - Math.abs(dz);
+        if (overlapX <= 0 || overlapY <= 0 || overlapZ <= 0) {
+            return false;
+        }
+
+        // pushed apart along the axis of least overlap
+        if (overlapX < overlapY && overlapX < overlapZ) {
+            setNormal(Math.signum(dx) == 0 ? 1 : Math.signum(dx), 0, 0, overlapX);
+        } else if (overlapY < overlapZ) {
+            setNormal(0, Math.signum(dy) == 0 ? 1 : Math.signum(dy), 0, overlapY);
+        } else {
+            setNormal(0, 0, Math.signum(dz) == 0 ? 1 : Math.signum(dz), overlapZ);
+        }
+        return true;
+    }
+
+    private boolean collideSpheres(int a, int b) {
+        float dx = x[b] - x[a], dy = y[b] - y[a], dz = z[b] - z[a];
+        float radii = halfX[a] + halfX[b];
+        float distanceSquared = dx * dx + dy * dy + dz * dz;
+        if (distanceSquared >= radii * radii) {
+            return false;
+        }
+
+        float distance = (float) Math.sqrt(distanceSquared);
+        if (distance == 0) {
+            setNormal(0, 1, 0, radii);
+        } else {
+            setNormal(dx / distance, dy / distance, dz / distance, radii - distance);
+        }
+        return true;
+    }
+
+    // the normal points from the sphere to the box, sign flips it when the box is the first body of the pair
+    private boolean collideSphereBox(int s, int box, float sign) {
+        float closestX = Math.max(x[box] - halfX[box], Math.min(x[s], x[box] + halfX[box]));
+        float closestY = Math.max(y[box] - halfY[box], Math.min(y[s], y[box] + halfY[box]));
+        float closestZ = Math.max(z[box] - halfZ[box], Math.min(z[s], z[box] + halfZ[box]));
+        float dx = closestX - x[s], dy = closestY - y[s], dz = closestZ - z[s];
+        float distanceSquared = dx * dx + dy * dy + dz * dz;
+        float radius = halfX[s];
+        if (distanceSquared >= radius * radius) {
+            return false;
+        }
+
+        if (distanceSquared == 0) {
+            // the center is inside the box, treat the sphere as a box
+            if (!collideBoxes(s, box)) {
+                return false;
+            }
+            setNormal(normalX * sign, normalY * sign, normalZ * sign, penetration);
+            return true;
+        }
+
+        float distance = (float) Math.sqrt(distanceSquared);
+        setNormal(dx / distance * sign, dy / distance * sign, dz / distance * sign, radius - distance);
+        return true;
+    }
+
+    private void setNormal(float x, float y, float z, float penetration) {
+        this.normalX = x;
+        this.normalY = y;
+        this.normalZ = z;
+        this.penetration = penetration;
+    }
+
+    private void resolve(int a, int b) {
+        float[] inverseMass = contactInverseMass;
+        float inverseMassSum = inverseMass[a] + inverseMass[b];
+        float velocityAlongNormal = (vx[b] - vx[a]) * normalX + (vy[b] - vy[a]) * normalY + (vz[b] - vz[a]) * normalZ;
+
+        // only bodies moving towards each other exchange an impulse
+        if (velocityAlongNormal < 0) {
+            float e = -velocityAlongNormal < RESTITUTION_SPEED ? 0 : Math.min(restitution[a], restitution[b]);
+            float impulse = -(1 + e) * velocityAlongNormal / inverseMassSum;
+            vx[a] -= impulse * inverseMass[a] * normalX;
+            vy[a] -= impulse * inverseMass[a] * normalY;
+            vz[a] -= impulse * inverseMass[a] * normalZ;
+            vx[b] += impulse * inverseMass[b] * normalX;
+            vy[b] += impulse * inverseMass[b] * normalY;
+            vz[b] += impulse * inverseMass[b] * normalZ;
+        }
+
+        float correction = Math.max(penetration - SLOP, 0) / inverseMassSum * CORRECTION;
+        x[a] -= correction * inverseMass[a] * normalX;
+        y[a] -= correction * inverseMass[a] * normalY;
+        z[a] -= correction * inverseMass[a] * normalZ;
+        x[b] += correction * inverseMass[b] * normalX;
+        y[b] += correction * inverseMass[b] * normalY;
+        z[b] += correction * inverseMass[b] * normalZ;
+    }
+
+    public int getEntity(int i) {
+        return entities[i];
+    }
+
+    public float getOffsetX(int i) {
+        return x[i] - startX[i];
+    }
+
+    public float getOffsetY(int i) {
+        return y[i] - startY[i];
+    }
+
+    public float getOffsetZ(int i) {
+        return z[i] - startZ[i];
+    }
+
+    public float getVelocityX(int i) {
+        return vx[i];
+    }
+
+    public float getVelocityY(int i) {
+        return vy[i];
+    }
+
+    public float getVelocityZ(int i) {
+        return vz[i];
+    }
+
+    public float getSleepTimer(int i) {
+        return sleepTimer[i];
+    }
+
+    public boolean isSleeping(int i) {
+        return sleeping[i];
+    }
+
+    private void allocate(int capacity) {
+        entities = entities == null ? new int[capacity] : Arrays.copyOf(entities, capacity);
+        startX = grow(startX, capacity);
+        startY = grow(startY, capacity);
+        startZ = grow(startZ, capacity);
+        x = grow(x, capacity);
+        y = grow(y, capacity);
+        z = grow(z, capacity);
+        halfX = grow(halfX, capacity);
+        halfY = grow(halfY, capacity);
+        halfZ = grow(halfZ, capacity);
+        sphere = sphere == null ? new boolean[capacity] : Arrays.copyOf(sphere, capacity);
+        vx = grow(vx, capacity);
+        vy = grow(vy, capacity);
+        vz = grow(vz, capacity);
+        inverseMass = grow(inverseMass, capacity);
+        restitution = grow(restitution, capacity);
+        minX = grow(minX, capacity);
+        minY = grow(minY, capacity);
+        minZ = grow(minZ, capacity);
+        maxX = grow(maxX, capacity);
+        maxY = grow(maxY, capacity);
+        maxZ = grow(maxZ, capacity);
+        sleepThreshold = grow(sleepThreshold, capacity);
+        sleepTimer = grow(sleepTimer, capacity);
+        sleeping = sleeping == null ? new boolean[capacity] : Arrays.copyOf(sleeping, capacity);
+        contactInverseMass = grow(contactInverseMass, capacity);
+        islands = islands == null ? new int[capacity] : Arrays.copyOf(islands, capacity);
+        islandTimers = grow(islandTimers, capacity);
+        islandSteps = islandSteps == null ? new int[capacity] : Arrays.copyOf(islandSteps, capacity);
+    }
+
+    private static float[] grow(float[] array, int capacity) {
+        return array == null ? new float[capacity] : Arrays.copyOf(array, capacity);
+    }
+}
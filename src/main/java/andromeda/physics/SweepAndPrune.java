@@ -0,0 +1,229 @@
+package andromeda.physics;
+
+import java.util.Arrays;
+
+/**
+ * Finds the pairs of overlapping boxes where at least one box is active. Boxes are kept sorted by their minimum on
+ * the x axis between updates. Active boxes move little per step so the insertion sort that restores their order is
+ * close to linear. Frozen boxes, sleeping and static bodies, live in their own sorted list that only changes when a
+ * box freezes or thaws, so an update costs the active boxes and their neighbours and not the frozen ones.
+ */
+public class SweepAndPrune {
+    private static final byte NONE = 0;
+    private static final byte ACTIVE = 1;
+    private static final byte FROZEN = 2;
+
+    private byte[] states;
+    // where an active box is in active, and the min x a frozen box was inserted with
+    private int[] activePositions;
+    private float[] frozenKeys;
+
+    private int[] active;
+    private int activeCount;
+
+    // frozen boxes in sorted order with their bounds next to them
+    private int[] frozen;
+    private float[] frozenMinX, frozenMinY, frozenMinZ, frozenMaxX, frozenMaxY, frozenMaxZ;
+    private int frozenCount;
+    // the widest frozen box on x, bounds how far before an active box the frozen boxes are searched
+    private float frozenWidth;
+
+    private int[] pairs;
+    private int pairCount;
+
+    public SweepAndPrune() {
+        this.states = new byte[0];
+        this.activePositions = new int[0];
+        this.frozenKeys = new float[0];
+        this.active = new int[64];
+        this.activeCount = 0;
+        this.frozen = new int[64];
+        this.frozenMinX = new float[64];
+        this.frozenMinY = new float[64];
+        this.frozenMinZ = new float[64];
+        this.frozenMaxX = new float[64];
+        this.frozenMaxY = new float[64];
+        this.frozenMaxZ = new float[64];
+        this.frozenCount = 0;
+        this.frozenWidth = 0;
+        this.pairs = new int[64];
+        this.pairCount = 0;
+    }
+
+    /**
+     * Makes the box active, its bounds are read from the arrays given to update.
+     */
+    public void activate(int box) {
+        ensureCapacity(box);
+        if (states[box] == ACTIVE) {
+            return;
+        }
+        if (states[box] == FROZEN) {
+            thaw(box);
+        }
+        if (activeCount == active.length) {
+            active = Arrays.copyOf(active, activeCount * 2);
+        }
+        activePositions[box] = activeCount;
+        active[activeCount++] = box;
+        states[box] = ACTIVE;
+    }
+
+    /**
+     * Stores the bounds of the box and stops updating it, a frozen box is only tested against active boxes.
+     */
+    public void freeze(int box, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        remove(box);
+        if (frozenCount == frozen.length) {
+            int capacity = frozenCount * 2;
+            frozen = Arrays.copyOf(frozen, capacity);
+            frozenMinX = Arrays.copyOf(frozenMinX, capacity);
+            frozenMinY = Arrays.copyOf(frozenMinY, capacity);
+            frozenMinZ = Arrays.copyOf(frozenMinZ, capacity);
+            frozenMaxX = Arrays.copyOf(frozenMaxX, capacity);
+            frozenMaxY = Arrays.copyOf(frozenMaxY, capacity);
+            frozenMaxZ = Arrays.copyOf(frozenMaxZ, capacity);
+        }
+        int position = lowerBound(minX);
+        int moved = frozenCount - position;
+        System.arraycopy(frozen, position, frozen, position + 1, moved);
+        System.arraycopy(frozenMinX, position, frozenMinX, position + 1, moved);
+        System.arraycopy(frozenMinY, position, frozenMinY, position + 1, moved);
+        System.arraycopy(frozenMinZ, position, frozenMinZ, position + 1, moved);
+        System.arraycopy(frozenMaxX, position, frozenMaxX, position + 1, moved);
+        System.arraycopy(frozenMaxY, position, frozenMaxY, position + 1, moved);
+        System.arraycopy(frozenMaxZ, position, frozenMaxZ, position + 1, moved);
+        frozen[position] = box;
+        frozenMinX[position] = minX;
+        frozenMinY[position] = minY;
+        frozenMinZ[position] = minZ;
+        frozenMaxX[position] = maxX;
+        frozenMaxY[position] = maxY;
+        frozenMaxZ[position] = maxZ;
+        frozenCount++;
+        frozenWidth = Math.max(frozenWidth, maxX - minX);
+        frozenKeys[box] = minX;
+        states[box] = FROZEN;
+    }
+
+    public void remove(int box) {
+        ensureCapacity(box);
+        if (states[box] == ACTIVE) {
+            int position = activePositions[box];
+            int last = active[--activeCount];
+            active[position] = last;
+            activePositions[last] = position;
+        } else if (states[box] == FROZEN) {
+            thaw(box);
+        }
+        states[box] = NONE;
+    }
+
+    private void thaw(int box) {
+        int position = lowerBound(frozenKeys[box]);
+        while (frozen[position] != box) {
+            position++;
+        }
+        int moved = frozenCount - position - 1;
+        System.arraycopy(frozen, position + 1, frozen, position, moved);
+        System.arraycopy(frozenMinX, position + 1, frozenMinX, position, moved);
+        System.arraycopy(frozenMinY, position + 1, frozenMinY, position, moved);
+        System.arraycopy(frozenMinZ, position + 1, frozenMinZ, position, moved);
+        System.arraycopy(frozenMaxX, position + 1, frozenMaxX, position, moved);
+        System.arraycopy(frozenMaxY, position + 1, frozenMaxY, position, moved);
+        System.arraycopy(frozenMaxZ, position + 1, frozenMaxZ, position, moved);
+        frozenCount--;
+        if (frozenCount == 0) {
+            frozenWidth = 0;
+        }
+        states[box] = NONE;
+    }
+
+    // the first frozen position with a min x of at least the key
+    private int lowerBound(float key) {
+        int low = 0, high = frozenCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (frozenMinX[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the overlapping pairs with at least one active box and returns their number. The pairs are stored as
+     * consecutive box indices in getPairs, the bounds of the active boxes are read from the arrays.
+     */
+    public int update(float[] minX, float[] minY, float[] minZ, float[] maxX, float[] maxY, float[] maxZ) {
+        for (int i = 1; i < activeCount; i++) {
+            int box = active[i];
+            float key = minX[box];
+            int j = i - 1;
+            while (j >= 0 && minX[active[j]] > key) {
+                active[j + 1] = active[j];
+                activePositions[active[j + 1]] = j + 1;
+                j--;
+            }
+            active[j + 1] = box;
+            activePositions[box] = j + 1;
+        }
+
+        pairCount = 0;
+        for (int i = 0; i < activeCount; i++) {
+            int a = active[i];
+            for (int j = i + 1; j < activeCount && minX[active[j]] <= maxX[a]; j++) {
+                int b = active[j];
+                if (minY[a] <= maxY[b] && minY[b] <= maxY[a] && minZ[a] <= maxZ[b] && minZ[b] <= maxZ[a]) {
+                    addPair(a, b);
+                }
+            }
+            for (int f = lowerBound(minX[a] - frozenWidth); f < frozenCount && frozenMinX[f] <= maxX[a]; f++) {
+                if (minX[a] <= frozenMaxX[f] && minY[a] <= frozenMaxY[f] && frozenMinY[f] <= maxY[a]
+                        && minZ[a] <= frozenMaxZ[f] && frozenMinZ[f] <= maxZ[a]) {
+                    addPair(a, frozen[f]);
+                }
+            }
+        }
+        return pairCount;
+    }
+
+    private void addPair(int a, int b) {
+        if (pairCount * 2 + 2 > pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[pairCount * 2] = a;
+        pairs[pairCount * 2 + 1] = b;
+        pairCount++;
+    }
+
+    private void ensureCapacity(int box) {
+        if (box >= states.length) {
+            int capacity = Math.max(64, Math.max(box + 1, states.length * 2));
+            states = Arrays.copyOf(states, capacity);
+            activePositions = Arrays.copyOf(activePositions, capacity);
+            frozenKeys = Arrays.copyOf(frozenKeys, capacity);
+        }
+    }
+
+    public int[] getPairs() {
+        return pairs;
+    }
+
+    /**
+     * The active boxes, the first getActiveCount entries are valid and their order changes with every update.
+     */
+    public int[] getActive() {
+        return active;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public boolean isActive(int box) {
+        return box < states.length && states[box] == ACTIVE;
+    }
+}
@@ -0,0 +1,70 @@
+package andromeda.physics;
+
+import andromeda.ecs.component.RigidBodyColumns;
+import andromeda.ecs.component.TransformColumns;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static andromeda.physics.BatchIntegrator.GRAVITY;
+import static andromeda.physics.BatchIntegrator.GROUND;
+
+/**
+ * The vector lane version of BatchIntegrator. Only loaded when the jdk.incubator.vector module is present, the
+ * operations are done in the same order as in the scalar loop so both round the same way.
+ */
+class VectorIntegrator {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * Integrates the rows up to the last full set of lanes and returns where the scalar loop has to continue.
+     */
+    static int integrate(RigidBodyColumns bodies, TransformColumns transforms, boolean[] enabled, int count, float dt) {
+        float[] vx = bodies.velocityX, vy = bodies.velocityY, vz = bodies.velocityZ;
+        float[] drag = bodies.drag;
+        float[] px = transforms.positionX, py = transforms.positionY, pz = transforms.positionZ;
+        float gravity = -1 * GRAVITY * dt;
+
+        int bound = SPECIES.loopBound(count);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            var active = VectorMask.fromArray(SPECIES, bodies.sleeping, i).not()
+                    .and(FloatVector.fromArray(SPECIES, bodies.mass, i).compare(VectorOperators.GT, 0));
+            if (enabled != null) {
+                active = active.and(VectorMask.fromArray(SPECIES, enabled, i));
+            }
+            if (!active.anyTrue()) {
+                continue;
+            }
+
+            var x = FloatVector.fromArray(SPECIES, vx, i);
+            var y = FloatVector.fromArray(SPECIES, vy, i).add(gravity);
+            var z = FloatVector.fromArray(SPECIES, vz, i);
+
+            var lengthSquared = x.mul(x).add(y.mul(y)).add(z.mul(z));
+            var dragForce = lengthSquared.mul(FloatVector.fromArray(SPECIES, drag, i)).mul(dt);
+            var invLength = FloatVector.broadcast(SPECIES, 1.0f).div(lengthSquared.sqrt());
+            x = x.add(x.mul(invLength).neg().mul(dragForce));
+            y = y.add(y.mul(invLength).neg().mul(dragForce));
+            z = z.add(z.mul(invLength).neg().mul(dragForce));
+
+            var positionX = FloatVector.fromArray(SPECIES, px, i).add(x.mul(dt));
+            var positionY = FloatVector.fromArray(SPECIES, py, i).add(y.mul(dt));
+            var positionZ = FloatVector.fromArray(SPECIES, pz, i).add(z.mul(dt));
+            var grounded = positionY.lt(GROUND);
+            x = x.blend(0, grounded);
+            y = y.blend(0, grounded);
+            z = z.blend(0, grounded);
+            positionY = positionY.blend(GROUND, grounded);
+
+            x.intoArray(vx, i, active);
+            y.intoArray(vy, i, active);
+            z.intoArray(vz, i, active);
+            positionX.intoArray(px, i, active);
+            positionY.intoArray(py, i, active);
+            positionZ.intoArray(pz, i, active);
+            active.or(VectorMask.fromArray(SPECIES, transforms.dirty, i)).intoArray(transforms.dirty, i);
+        }
+        return bound;
+    }
+}
@@ -1,37 +1,124 @@
 package andromeda.render.pipeline;
 
+import andromeda.config.GraphicsSettings;
+import andromeda.config.PhysicsSettings;
 import andromeda.ecs.Ecs;
-import andromeda.ecs.component.EcsModel;
+import andromeda.ecs.component.*;
+import andromeda.ecs.system.Signature;
 import andromeda.ecs.system.TransformSystem;
-import andromeda.geometry.Mesh;
+import andromeda.projection.Camera;
 import andromeda.scene.RenderTarget;
+import org.joml.FrustumIntersection;
 import org.joml.Matrix4f;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 public class CullPass {
+    private static final Signature RENDERABLES = Signature.of(ComponentType.TRANSFORM, ComponentType.MODEL);
 
     private Ecs ecs;
 
     private TransformSystem transformSystem;
+    private Query renderables;
+
+    private final FrustumIntersection frustum;
+    private List<RenderTarget> renderTargets;
+    private int visibleCount;
+    private int culledCount;
 
     public CullPass(Ecs ecs) {
         this.ecs = ecs;
+        this.frustum = new FrustumIntersection();
+        this.renderTargets = List.of();
     }
 
     public void init() {
         transformSystem = ecs.getSystem(TransformSystem.class);
+        renderables = ecs.query(RENDERABLES);
+    }
+
+    /**
+     * Creates a render target for every mesh and returns the ones that intersect the camera frustum. All targets,
+     * visible or not, stay available through getRenderTargets for passes that see more than the camera.
+     * <p>
+     * Rigid bodies that moved in the last physics step are drawn between their states before and after it, the blend
+     * only goes into the render target and the transforms of the entities keep their current state.
+     */
+    public List<RenderTarget> cullRenderTargets(Camera camera) {
+        int flipTick = ecs.getFlipTick();
+        float alpha = ecs.getInterpolation();
+        renderTargets = renderables.reduceChunksParallel(ArrayList<RenderTarget>::new, (archetype, chunk, renderTargets) -> {
+            Component[] models = chunk.getColumn(archetype.getColumn(ComponentType.MODEL));
+            int column = archetype.getColumn(ComponentType.TRANSFORM);
+            TransformColumns current = null, previous = null;
+            if (PhysicsSettings.interpolate && archetype.has(ComponentType.RIGID_BODY) && chunk.changedSince(column, flipTick)
+                    && chunk.getPackedColumns(column) instanceof TransformColumns columns
+                    && chunk.getPreviousPackedColumns(column) instanceof TransformColumns previousColumns
+                    && previousColumns != columns) {
+                current = columns;
+                previous = previousColumns;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                if (!chunk.isEnabled(i)) {
+                    continue;
+                }
+                int entityId = chunk.getEntity(i);
+                Matrix4f transform;
+                if (current != null && chunk.changedSince(column, i, flipTick) && chunk.hasPrevious(column, i)) {
+                    transform = transformSystem.toGlobalTransform(entityId, current.interpolate(i, previous, alpha, new Matrix4f()));
+                } else {
+                    transform = transformSystem.getGlobalTransform(entityId);
+                }
+                addRenderTargets((EcsModel) models[i], entityId, transform, renderTargets);
+            }
+        }, new ArrayList<>(), (renderTargets, chunkTargets) -> {
+            renderTargets.addAll(chunkTargets);
+            return renderTargets;
+        });
+
+        List<RenderTarget> visible = renderTargets;
+        if (GraphicsSettings.Culling.frustum) {
+            frustum.set(camera.getProjectionView());
+            visible = new ArrayList<>(renderTargets.size());
+            for (var renderTarget : renderTargets) {
+                if (isVisible(renderTarget)) {
+                    visible.add(renderTarget);
+                }
+            }
+        }
+        visibleCount = visible.size();
+        culledCount = renderTargets.size() - visibleCount;
+        return visible;
+    }
+
+    // the sphere rejects most targets cheaply, the box is tighter for long and thin geometry
+    private boolean isVisible(RenderTarget renderTarget) {
+        var bounds = renderTarget.getBounds();
+        var sphere = renderTarget.getBoundingSphere();
+        return !bounds.isEmpty()
+                && frustum.testSphere(sphere.position, sphere.radius)
+                && frustum.testAab(bounds.min, bounds.max);
+    }
+
+    private void addRenderTargets(EcsModel ecsModel, int entityId, Matrix4f transform, List<RenderTarget> renderTargets) {
+        for (var mesh : ecsModel.getMeshes()) {
+            renderTargets.add(new RenderTarget(mesh, transform, entityId));
+        }
+    }
+
+    /**
+     * Every render target of the last cull, including the ones outside the camera frustum.
+     */
+    public List<RenderTarget> getRenderTargets() {
+        return renderTargets;
     }
 
-    public List<RenderTarget> cullRenderTargets(Set<Integer> entities) {
-        return entities.stream().map(this::getRenderTarget).flatMap(Collection::stream).toList();
+    public int getVisibleCount() {
+        return visibleCount;
     }
 
-    private List<RenderTarget> getRenderTarget(int entityId) {
-        EcsModel ecsModel = ecs.getComponent(EcsModel.class, entityId);
-        Matrix4f transform = transformSystem.getGlobalTransform(entityId);
-        return ecsModel.getMeshes().stream().map(mesh -> new RenderTarget(mesh, transform, entityId)).toList();
+    public int getCulledCount() {
+        return culledCount;
     }
 }
@@ -8,17 +8,25 @@ import andromeda.scene.RenderTarget;
 import andromeda.shader.Program;
 import andromeda.util.Cascade;
 import andromeda.util.GraphicsMath;
+import org.joml.FrustumIntersection;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class ShadowPass {
     private static final int CASCADE_LEVELS = 4;
     private static final int SHADOW_MAP_SIZE = 2048;
+    // every plane of a cascade volume except the near plane, which faces the light
+    private static final int TOWARD_LIGHT_PLANES = FrustumIntersection.PLANE_MASK_NX | FrustumIntersection.PLANE_MASK_PX
+            | FrustumIntersection.PLANE_MASK_NY | FrustumIntersection.PLANE_MASK_PY | FrustumIntersection.PLANE_MASK_PZ;
     private Program program;
 
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    private final int[] casterCounts = new int[CASCADE_LEVELS];
+
     public void init() {
         this.program = Program.loadShader("shaders/shadow_cascade.vert", "shaders/shadow_cascade.frag", "shaders/shadow_cascade.geom");
     }
@@ -54,29 +62,57 @@ public class ShadowPass {
 
     public void render(List<RenderTarget> renderTargets, Camera camera, DirectionalLight directionalLight, FrameBuffer depthBuffer) {
         Cascade[] cascades = getCascades(camera, directionalLight);
-        this.renderShadow(renderTargets, cascades, depthBuffer, this.program);
+        this.renderShadow(cullCasters(renderTargets, cascades), cascades, depthBuffer, this.program);
     }
 
-    private void renderShadow(List<RenderTarget> renderTargets, Cascade[] cascades, FrameBuffer targetBuffer, Program program) {
-        targetBuffer.bind();
-
-        for (var target : renderTargets) {
-            if (!target.getMesh().getMaterial().unlit) {
-                this.renderShadow(target, cascades, program);
+    /**
+     * Sorts the shadow casters into a draw list per cascade. A caster is kept for a cascade if its bounds touch the
+     * cascade's ortho volume, the volume is open toward the light since casters in front of it still shade it.
+     */
+    List<List<RenderTarget>> cullCasters(List<RenderTarget> renderTargets, Cascade[] cascades) {
+        List<List<RenderTarget>> casters = new ArrayList<>(cascades.length);
+        for (int i = 0; i < cascades.length; i++) {
+            frustum.set(cascades[i].lightSpaceProjection);
+            List<RenderTarget> cascadeCasters = new ArrayList<>();
+            for (var target : renderTargets) {
+                if (!target.getMesh().getMaterial().unlit && castsInto(target)) {
+                    cascadeCasters.add(target);
+                }
             }
+            casters.add(cascadeCasters);
+            casterCounts[i] = cascadeCasters.size();
+        }
+        return casters;
+    }
+
+    private boolean castsInto(RenderTarget renderTarget) {
+        var bounds = renderTarget.getBounds();
+        if (bounds.isEmpty()) {
+            return false;
         }
+        int result = frustum.intersectAab(bounds.min, bounds.max, TOWARD_LIGHT_PLANES);
+        return result == FrustumIntersection.INSIDE || result == FrustumIntersection.INTERSECT;
     }
 
-    private void renderShadow(RenderTarget renderTarget, Cascade[] cascades, Program program) {
-        var mesh = renderTarget.getMesh();
-        var model = renderTarget.getTransform();
-        var geometry = mesh.getGeometry();
+    private void renderShadow(List<List<RenderTarget>> casters, Cascade[] cascades, FrameBuffer targetBuffer, Program program) {
+        targetBuffer.bind();
 
         program.use();
         program.setCascades(cascades);
-        program.setMat4("model", model);
+        for (int i = 0; i < casters.size(); i++) {
+            program.setInt("cascade", i);
+            for (var target : casters.get(i)) {
+                program.setMat4("model", target.getTransform());
+                target.getMesh().getGeometry().draw();
+            }
+        }
+    }
 
-        geometry.draw();
+    /**
+     * The number of casters drawn into the cascade in the last frame.
+     */
+    public int getCasterCount(int cascade) {
+        return casterCounts[cascade];
     }
 
     private OrthographicCamera directionalOrtho(Vector3f dir, Matrix4f projection, Matrix4f view) {
@@ -46,23 +46,26 @@ public class ModelLoader {
         int[] entities = new int[s_models.length];
 
         var transformSystem = ecs.getSystem(TransformSystem.class);
+        var commands = ecs.commands();
 
         for (int i = 0; i < entities.length; i++) {
             SerializableModel sModel = s_models[i];
             Model model = serializableModelToModel(sModel);
-            int entityId = ecs.createEntity();
+
+            Transform transform = new Transform();
+            transform.setLocalTransform(model.getTransform());
+            transform.setName(sModel.name());
+            int entityId = commands.createEntity(transform);
 
             if (!model.getMeshes().isEmpty()) {
-                var modelComponent = ecs.addComponent(EcsModel.class, entityId);
+                var modelComponent = commands.addComponent(EcsModel.class, entityId);
                 modelComponent.setMeshes(model.getMeshes());
             }
-            Transform transform = ecs.getComponent(Transform.class, entityId);
-            transform.setLocalTransform(model.getTransform());
-            transform.setName(sModel.name());
 
             entities[i] = entityId;
         }
 
+        ecs.flushCommands();
 
         var parentMap = getParentMap(s_models);
         int rootEntity = -1;
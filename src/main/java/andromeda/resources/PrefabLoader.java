@@ -0,0 +1,80 @@
+package andromeda.resources;
+
+import andromeda.ecs.Ecs;
+import andromeda.ecs.Prefab;
+import andromeda.ecs.component.EcsModel;
+import andromeda.ecs.component.Transform;
+import andromeda.geometry.Geometry;
+import andromeda.geometry.Mesh;
+import andromeda.geometry.Primitives;
+import andromeda.material.Material;
+import com.google.gson.Gson;
+import org.apache.commons.io.FileUtils;
+import org.joml.Vector3f;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PrefabLoader {
+
+    public static Prefab loadPrefab(String prefabPath, Ecs ecs) {
+        try {
+            var gson = new Gson();
+            var json = FileUtils.readFileToString(new File(prefabPath), StandardCharsets.UTF_8);
+            var entityRepresentation = gson.fromJson(json, EntityRepresentation.class);
+            return createPrefab(entityRepresentation, ecs);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to load prefab: " + prefabPath);
+        }
+    }
+
+    public static Prefab createPrefab(EntityRepresentation entityRepresentation, Ecs ecs) {
+        var prefab = new Prefab();
+        // primitives are uploaded once and shared by every node and instance of the prefab
+        Map<String, Geometry> primitives = new HashMap<>();
+        addNode(entityRepresentation, -1, prefab, primitives, ecs);
+        return prefab;
+    }
+
+    private static void addNode(EntityRepresentation entityRepresentation, int parentIndex, Prefab prefab, Map<String, Geometry> primitives, Ecs ecs) {
+        int index;
+        if (entityRepresentation.geometry.equals("cube") || entityRepresentation.geometry.equals("plane")) {
+            var geometry = primitives.computeIfAbsent(entityRepresentation.geometry, PrefabLoader::createPrimitive);
+            var material = Material.loadMaterial(entityRepresentation.material);
+
+            var model = new EcsModel();
+            model.getMeshes().add(new Mesh(geometry, material));
+            var transform = new Transform();
+            transform.setName(entityRepresentation.geometry);
+
+            index = prefab.add(parentIndex, transform, model);
+        } else {
+            // models are loaded into the ecs once, captured and removed again
+            int root = new ModelLoader(entityRepresentation.geometry, ecs).load();
+            index = prefab.size();
+            prefab.add(parentIndex, Prefab.of(ecs, root));
+            ecs.destroyEntity(root);
+        }
+
+        Transform transform = prefab.get(index, Transform.class);
+        transform.translate(new Vector3f(entityRepresentation.position));
+        transform.setScale(transform.getScale().mul(new Vector3f(entityRepresentation.scale)));
+
+        List<EntityRepresentation> children = entityRepresentation.children;
+        if (children != null) {
+            for (var childRep : children) {
+                addNode(childRep, index, prefab, primitives, ecs);
+            }
+        }
+    }
+
+    private static Geometry createPrimitive(String name) {
+        var geometry = name.equals("cube") ? Primitives.cube() : Primitives.plane();
+        geometry.upload();
+        return geometry;
+    }
+}
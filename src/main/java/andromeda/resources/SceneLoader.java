@@ -2,18 +2,11 @@ package andromeda.resources;
 
 import andromeda.ecs.Ecs;
 import andromeda.ecs.component.DirectionalLightComponent;
-import andromeda.ecs.component.EcsModel;
 import andromeda.ecs.component.PointLightComponent;
 import andromeda.ecs.component.Transform;
-import andromeda.ecs.system.TransformSystem;
-import andromeda.geometry.Mesh;
-import andromeda.geometry.Model;
-import andromeda.geometry.Primitives;
 import andromeda.light.LightType;
-import andromeda.material.Material;
 import com.google.gson.Gson;
 import org.apache.commons.io.FileUtils;
-import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
 import java.io.File;
@@ -67,50 +60,7 @@ public class SceneLoader {
     }
 
     private static int loadEntity(EntityRepresentation entityRepresentation, Ecs ecs) {
-        var material = Material.loadMaterial(entityRepresentation.material);
-
-        Model model = switch (entityRepresentation.geometry) {
-            case "cube" -> new Model(new Mesh(Primitives.cube(), material));
-            case "plane" -> new Model(new Mesh(Primitives.plane(), material));
-            default -> null;
-        };
-
-        int entityId = -1;
-
-        if (model == null) {
-            var modeLoader = new ModelLoader(entityRepresentation.geometry, ecs);
-            entityId = modeLoader.load();
-        } else {
-            entityId = ecs.createEntity();
-
-            var modelComponent = ecs.addComponent(EcsModel.class, entityId);
-            modelComponent.getMeshes().addAll(model.getMeshes());
-            modelComponent.getMeshes().forEach(m -> m.getGeometry().upload());
-
-            Transform transformComp = ecs.getComponent(Transform.class, entityId);
-            transformComp.setName(entityRepresentation.geometry);
-        }
-
-        var position = new Vector3f(entityRepresentation.position);
-        var scale = new Vector3f(entityRepresentation.scale);
-
-        Matrix4f transform = new Matrix4f();
-
-        transform.translate(position);
-        transform.scale(scale);
-
-        Transform transformComp = ecs.getComponent(Transform.class, entityId);
-        transformComp.translate(position);
-        transformComp.setScale(transformComp.getScale().mul(scale));
-
-        var transformSystem = ecs.getSystem(TransformSystem.class);
-
-        for (var childRep : entityRepresentation.children) {
-            var childEntityId = loadEntity(childRep, ecs);
-
-            transformSystem.setParent(childEntityId, entityId);
-        }
-
-        return entityId;
+        var prefab = PrefabLoader.createPrefab(entityRepresentation, ecs);
+        return ecs.instantiate(prefab, 1)[0];
     }
 }
@@ -1,7 +1,10 @@
 package andromeda.scene;
 
+import andromeda.geometry.BoundingBox;
 import andromeda.geometry.Mesh;
+import andromeda.util.GraphicsMath;
 import org.joml.Matrix4f;
+import org.joml.Vector3f;
 
 public class RenderTarget {
     private Mesh mesh;
@@ -9,10 +12,27 @@ public class RenderTarget {
 
     private int entityId;
 
+    // world space bounds of the geometry, used for culling
+    private BoundingBox bounds;
+    private GraphicsMath.Sphere boundingSphere;
+
     public RenderTarget(Mesh mesh, Matrix4f transform, int entityId) {
         this.mesh = mesh;
         this.transform = transform;
         this.entityId = entityId;
+
+        var geometry = mesh.getGeometry();
+        var localBounds = geometry.getBounds();
+        this.bounds = new BoundingBox();
+        if (!localBounds.isEmpty()) {
+            transform.transformAab(localBounds.min, localBounds.max, bounds.min, bounds.max);
+        }
+
+        var localSphere = geometry.getBoundingSphere();
+        var scale = transform.getScale(new Vector3f());
+        this.boundingSphere = new GraphicsMath.Sphere();
+        this.boundingSphere.position = transform.transformPosition(localSphere.position, new Vector3f());
+        this.boundingSphere.radius = localSphere.radius * Math.max(scale.x, Math.max(scale.y, scale.z));
     }
 
     public Mesh getMesh() {
@@ -26,4 +46,15 @@ public class RenderTarget {
     public int getEntityId() {
         return entityId;
     }
+
+    /**
+     * The world space box around the geometry, empty if the geometry has no vertices.
+     */
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
+    public GraphicsMath.Sphere getBoundingSphere() {
+        return boundingSphere;
+    }
 }
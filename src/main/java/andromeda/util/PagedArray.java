@@ -0,0 +1,40 @@
+package andromeda.util;
+
+import java.util.Arrays;
+
+/**
+ * Array that grows one fixed size page at a time. Growing never copies the elements, only the page table.
+ */
+public class PagedArray<T> {
+    public static final int PAGE_SIZE = 1024;
+
+    private Object[][] pages;
+
+    public PagedArray() {
+        this.pages = new Object[1][];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        int page = index / PAGE_SIZE;
+        if (page >= pages.length || pages[page] == null) {
+            return null;
+        }
+        return (T) pages[page][index % PAGE_SIZE];
+    }
+
+    public void set(int index, T value) {
+        page(index)[index % PAGE_SIZE] = value;
+    }
+
+    private Object[] page(int index) {
+        int page = index / PAGE_SIZE;
+        if (page >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+        }
+        if (pages[page] == null) {
+            pages[page] = new Object[PAGE_SIZE];
+        }
+        return pages[page];
+    }
+}
@@ -0,0 +1,44 @@
+package andromeda.util;
+
+import java.util.Arrays;
+
+/**
+ * Int version of {@link PagedArray}, elements that were never set read as the default value.
+ */
+public class PagedIntArray {
+    public static final int PAGE_SIZE = PagedArray.PAGE_SIZE;
+
+    private final int defaultValue;
+    private int[][] pages;
+
+    public PagedIntArray(int defaultValue) {
+        this.defaultValue = defaultValue;
+        this.pages = new int[1][];
+    }
+
+    public int get(int index) {
+        int page = index / PAGE_SIZE;
+        if (page >= pages.length || pages[page] == null) {
+            return defaultValue;
+        }
+        return pages[page][index % PAGE_SIZE];
+    }
+
+    public void set(int index, int value) {
+        page(index)[index % PAGE_SIZE] = value;
+    }
+
+    private int[] page(int index) {
+        int page = index / PAGE_SIZE;
+        if (page >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+        }
+        if (pages[page] == null) {
+            pages[page] = new int[PAGE_SIZE];
+            if (defaultValue != 0) {
+                Arrays.fill(pages[page], defaultValue);
+            }
+        }
+        return pages[page];
+    }
+}
@@ -0,0 +1,86 @@
+package andromeda.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of non negative ints with O(1) add, remove and contains. The values are kept packed in a dense
+ * array so they can be iterated without boxing, removing swaps the last value into the removed slot.
+ */
+public class SparseSet {
+    private int[] dense;
+    private int[] sparse;
+    private int size;
+
+    public SparseSet() {
+        this(64);
+    }
+
+    public SparseSet(int capacity) {
+        this.dense = new int[capacity];
+        this.sparse = new int[capacity];
+        this.size = 0;
+    }
+
+    public boolean add(int value) {
+        if (contains(value)) {
+            return false;
+        }
+        if (value >= sparse.length) {
+            sparse = Arrays.copyOf(sparse, Math.max(value + 1, sparse.length * 2));
+        }
+        if (size == dense.length) {
+            dense = Arrays.copyOf(dense, dense.length * 2);
+        }
+        dense[size] = value;
+        sparse[value] = size;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        if (!contains(value)) {
+            return false;
+        }
+        int index = sparse[value];
+        int last = dense[size - 1];
+        dense[index] = last;
+        sparse[last] = index;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0 || value >= sparse.length) {
+            return false;
+        }
+        int index = sparse[value];
+        return index < size && dense[index] == value;
+    }
+
+    public int get(int index) {
+        return dense[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(dense[i]);
+        }
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(dense, size);
+    }
+}
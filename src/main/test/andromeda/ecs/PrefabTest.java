@@ -0,0 +1,45 @@
+package andromeda.ecs;
+
+import andromeda.ecs.component.RigidBody;
+import andromeda.ecs.component.Transform;
+import org.junit.jupiter.api.Test;
+
+class PrefabTest {
+
+    @Test
+    void shouldCopyTemplatesAndLinkParents() {
+        var prefab = new Prefab();
+        var root = new Transform();
+        root.setPosition(1, 2, 3);
+        prefab.add(-1, root, new RigidBody());
+        int child = prefab.add(0);
+        prefab.add(child, new RigidBody());
+
+        assert prefab.size() == 3;
+        assert prefab.get(1, Transform.class) != null;
+
+        var rootComponents = prefab.instantiate(0, -1);
+        var rootCopy = (Transform) rootComponents.get(0);
+        assert rootCopy != root && rootCopy.getPosition().z == 3;
+        assert rootCopy.getParentEntityId() == -1;
+
+        var childTransform = (Transform) prefab.instantiate(2, 7).stream().filter(c -> c instanceof Transform).findFirst().orElseThrow();
+        assert childTransform.getParentEntityId() == 7;
+        assert prefab.getParent(2) == child;
+    }
+
+    @Test
+    void shouldAppendOtherPrefabBelowParent() {
+        var other = new Prefab();
+        other.add(-1);
+        other.add(0);
+
+        var prefab = new Prefab();
+        prefab.add(-1);
+        prefab.add(0, other);
+
+        assert prefab.size() == 3;
+        assert prefab.getParent(1) == 0;
+        assert prefab.getParent(2) == 1;
+    }
+}
@@ -0,0 +1,64 @@
+package andromeda.ecs;
+
+import andromeda.ecs.component.Component;
+import andromeda.ecs.component.PointLightComponent;
+import andromeda.ecs.component.RigidBody;
+import andromeda.ecs.component.Transform;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+class WorldSnapshotTest {
+
+    @Test
+    void shouldWriteAndLoadEntitiesAndComponents() throws IOException {
+        var root = new Transform();
+        root.setName("root");
+        root.setPosition(1, 2, 3);
+        var rigidBody = new RigidBody();
+        rigidBody.setVelocity(0, -1, 0);
+        rigidBody.setDrag(0.5f);
+
+        var child = new Transform();
+        child.setParentEntityId(4);
+        child.setScale(2, 2, 2);
+        var light = new PointLightComponent();
+        light.radius = 12;
+
+        var snapshot = new WorldSnapshot(new int[]{4, 9}, new int[]{0, 3}, new boolean[]{true, false},
+                new Component[][]{{root, rigidBody}, {child, light}});
+
+        // a mapped file can not be deleted on every platform while the mapping is alive
+        var file = Files.createTempFile("world", ".snapshot");
+        file.toFile().deleteOnExit();
+        snapshot.save(file);
+        var loaded = WorldSnapshot.load(file);
+
+        assert loaded.size() == 2;
+        assert loaded.entities[1] == 9 && loaded.generations[1] == 3;
+        assert loaded.enabled[0] && !loaded.enabled[1];
+
+        var loadedRoot = (Transform) loaded.components[0][0];
+        assert "root".equals(loadedRoot.getName());
+        assert loadedRoot.getPosition().y == 2;
+        assert ((RigidBody) loaded.components[0][1]).getVelocity().y == -1;
+        assert ((RigidBody) loaded.components[0][1]).getDrag() == 0.5f;
+
+        var loadedChild = (Transform) loaded.components[1][0];
+        assert loadedChild.getName() == null;
+        assert loadedChild.getParentEntityId() == 4;
+        assert loadedChild.getScale().x == 2;
+        assert ((PointLightComponent) loaded.components[1][1]).radius == 12;
+    }
+
+    @Test
+    void shouldCopyComponentsOnEveryRestore() {
+        var transform = new Transform();
+        var snapshot = new WorldSnapshot(new int[]{0}, new int[]{0}, new boolean[]{true}, new Component[][]{{transform}});
+
+        var first = snapshot.copyComponents(0).get(0);
+        var second = snapshot.copyComponents(0).get(0);
+        assert first != transform && first != second;
+    }
+}
@@ -0,0 +1,298 @@
+package andromeda.ecs.component;
+
+import andromeda.ecs.system.Signature;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class ComponentManagerTest {
+
+    @Test
+    void shouldMoveComponentsWhenArchetypeChanges() {
+        var componentManager = createComponentManager();
+
+        var transform = componentManager.addComponent(Transform.class, 0);
+        var rigidBody = componentManager.addComponent(RigidBody.class, 0);
+
+        assert componentManager.getComponent(Transform.class, 0) == transform;
+        assert componentManager.getComponent(RigidBody.class, 0) == rigidBody;
+        assert componentManager.getComponent(EcsModel.class, 0) == null;
+    }
+
+    @Test
+    void shouldKeepRowsDenseWhenEntityIsDestroyed() {
+        var componentManager = createComponentManager();
+
+        for (int entityId = 0; entityId < 3; entityId++) {
+            componentManager.addComponent(Transform.class, entityId);
+            componentManager.addComponent(RigidBody.class, entityId);
+        }
+        var lastRigidBody = componentManager.getComponent(RigidBody.class, 2);
+
+        componentManager.entityDestroyed(0);
+
+        int[] count = {0};
+        componentManager.forEachChunk(Signature.of(ComponentType.TRANSFORM, ComponentType.RIGID_BODY), (archetype, chunk) -> {
+            for (int i = 0; i < chunk.size(); i++) {
+                assert chunk.getEntity(i) != 0;
+                count[0]++;
+            }
+        });
+
+        assert count[0] == 2;
+        assert componentManager.getComponent(RigidBody.class, 2) == lastRigidBody;
+        assert componentManager.getComponent(Transform.class, 0) == null;
+    }
+
+    @Test
+    void shouldKeepPackedDataWhenArchetypeChanges() {
+        var componentManager = createComponentManager();
+
+        var transform = componentManager.addComponent(Transform.class, 0);
+        transform.setPosition(1, 2, 3);
+        componentManager.addComponent(Transform.class, 1);
+
+        componentManager.addComponent(RigidBody.class, 0);
+        componentManager.entityDestroyed(1);
+
+        var position = componentManager.getComponent(Transform.class, 0).getPosition();
+        assert position.x == 1 && position.y == 2 && position.z == 3;
+        assert transform.getColumns().capacity() == Archetype.CHUNK_SIZE;
+    }
+
+    @Test
+    void shouldIncludeArchetypesCreatedAfterQuery() {
+        var componentManager = createComponentManager();
+        var query = componentManager.query(Signature.of(ComponentType.TRANSFORM, ComponentType.RIGID_BODY));
+
+        componentManager.addComponent(Transform.class, 0);
+        componentManager.addComponent(RigidBody.class, 0);
+        componentManager.addComponent(Transform.class, 1);
+        componentManager.addComponent(RigidBody.class, 1);
+        componentManager.addComponent(EcsModel.class, 1);
+
+        int[] count = {0};
+        query.forEach(Transform.class, RigidBody.class, (entityId, transform, rigidBody) -> {
+            assert componentManager.getComponent(RigidBody.class, entityId) == rigidBody;
+            count[0]++;
+        });
+
+        assert count[0] == 2;
+        assert query.size() == 2;
+        assert componentManager.query(Signature.of(ComponentType.RIGID_BODY, ComponentType.TRANSFORM)) == query;
+    }
+
+    @Test
+    void shouldAddComponentsInSingleMove() {
+        var componentManager = createComponentManager();
+
+        var transform = new Transform();
+        transform.setPosition(1, 2, 3);
+        var rigidBody = new RigidBody();
+        componentManager.addComponents(List.of(transform, rigidBody), 0);
+
+        assert componentManager.getArchetypes().size() == 1;
+        assert componentManager.getComponent(Transform.class, 0) == transform;
+        assert componentManager.getComponent(RigidBody.class, 0) == rigidBody;
+        assert transform.getPosition().y == 2;
+    }
+
+    @Test
+    void shouldReduceParallelChunksInOrder() {
+        var componentManager = createComponentManager();
+        int entities = Archetype.CHUNK_SIZE * 4 + 10;
+        for (int entityId = 0; entityId < entities; entityId++) {
+            componentManager.addComponent(Transform.class, entityId);
+        }
+        var query = componentManager.query(Signature.of(ComponentType.TRANSFORM));
+
+        List<Integer> order = query.reduceChunksParallel(ArrayList<Integer>::new, (archetype, chunk, ids) -> {
+            for (int i = 0; i < chunk.size(); i++) {
+                ids.add(chunk.getEntity(i));
+            }
+        }, new ArrayList<>(), (ids, chunkIds) -> {
+            ids.addAll(chunkIds);
+            return ids;
+        });
+
+        List<Integer> expected = new ArrayList<>();
+        query.forEachEntity(expected::add);
+        assert order.equals(expected);
+        assert order.size() == entities;
+    }
+
+    @Test
+    void shouldOnlyVisitComponentsChangedSinceTick() {
+        var componentManager = createComponentManager();
+        for (int entityId = 0; entityId < Archetype.CHUNK_SIZE + 2; entityId++) {
+            componentManager.addComponent(Transform.class, entityId);
+        }
+        var query = componentManager.query(Signature.of(ComponentType.TRANSFORM));
+
+        int tick = componentManager.nextTick();
+        componentManager.getComponentMut(Transform.class, 3).setPosition(1, 0, 0);
+        componentManager.markChanged(ComponentType.TRANSFORM, Archetype.CHUNK_SIZE + 1);
+        componentManager.getComponent(Transform.class, 4);
+
+        List<Integer> changed = new ArrayList<>();
+        query.forEachChangedSince(tick - 1, ComponentType.TRANSFORM, changed::add);
+        assert changed.equals(List.of(3, Archetype.CHUNK_SIZE + 1));
+
+        componentManager.entityDestroyed(2);
+        changed.clear();
+        query.forEachChangedSince(tick, ComponentType.TRANSFORM, changed::add);
+        assert changed.isEmpty();
+    }
+
+    @Test
+    void shouldCompactArchetypeWhenComponentIsRemoved() {
+        var componentManager = createComponentManager();
+        for (int entityId = 0; entityId < 3; entityId++) {
+            componentManager.addComponent(Transform.class, entityId);
+            componentManager.addComponent(RigidBody.class, entityId);
+        }
+        var transform = componentManager.getComponent(Transform.class, 0);
+        transform.setPosition(4, 5, 6);
+        var rigidBody = componentManager.getComponent(RigidBody.class, 0);
+
+        assert componentManager.removeComponent(ComponentType.RIGID_BODY, 0) == rigidBody;
+        assert componentManager.removeComponent(ComponentType.RIGID_BODY, 0) == null;
+
+        assert componentManager.getComponent(RigidBody.class, 0) == null;
+        assert componentManager.getComponent(Transform.class, 0) == transform;
+        assert transform.getPosition().z == 6;
+        assert componentManager.query(Signature.of(ComponentType.RIGID_BODY)).size() == 2;
+        assert componentManager.getComponent(RigidBody.class, 2) != null;
+    }
+
+    @Test
+    void shouldSkipDisabledEntitiesWhenIterating() {
+        var componentManager = createComponentManager();
+        for (int entityId = 0; entityId < 4; entityId++) {
+            componentManager.addComponent(Transform.class, entityId);
+        }
+        var query = componentManager.query(Signature.of(ComponentType.TRANSFORM));
+
+        componentManager.setEnabled(1, false);
+        componentManager.setEnabled(3, false);
+        componentManager.addComponent(RigidBody.class, 3);
+        componentManager.entityDestroyed(0);
+
+        List<Integer> visited = new ArrayList<>();
+        query.forEachEntity(visited::add);
+        assert visited.equals(List.of(2));
+        assert !componentManager.isEnabled(1) && !componentManager.isEnabled(3);
+
+        componentManager.setEnabled(1, true);
+        visited.clear();
+        query.forEach(Transform.class, (entityId, transform) -> visited.add(entityId));
+        assert visited.size() == 2 && visited.contains(1) && visited.contains(2);
+    }
+
+    @Test
+    void shouldRejectComponentsOutsideQuery() {
+        var componentManager = createComponentManager();
+        componentManager.addComponent(Transform.class, 0);
+        var query = componentManager.query(Signature.of(ComponentType.TRANSFORM));
+
+        try {
+            query.forEach(Transform.class, RigidBody.class, (entityId, transform, rigidBody) -> {
+            });
+            assert false;
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().endsWith(RigidBody.class.getName());
+        }
+
+        int count = ComponentType.count();
+        try {
+            query.forEach(Unregistered.class, (entityId, unregistered) -> {
+            });
+            assert false;
+        } catch (IllegalArgumentException e) {
+            assert ComponentType.count() == count && ComponentType.find(Unregistered.class) == null;
+        }
+    }
+
+    private record Unregistered() implements Component {
+        @Override
+        public ComponentType componentType() {
+            return ComponentType.register(Unregistered.class);
+        }
+
+        @Override
+        public Component createComponent() {
+            return new Unregistered();
+        }
+
+        @Override
+        public Component copy() {
+            return new Unregistered();
+        }
+    }
+
+    @Test
+    void shouldKeepPreviousStateUntilNextFlip() {
+        var componentManager = createComponentManager();
+        componentManager.setDoubleBuffered(ComponentType.TRANSFORM);
+        componentManager.addComponent(Transform.class, 0).setPosition(1, 0, 0);
+        componentManager.addComponent(Transform.class, 1).setPosition(5, 0, 0);
+
+        // added since the last flip, there is no previous state yet
+        assert componentManager.getPreviousComponent(Transform.class, 0).getPosition().x == 1;
+
+        componentManager.flip();
+        componentManager.nextTick();
+        componentManager.getComponentMut(Transform.class, 0).setPosition(2, 0, 0);
+
+        assert componentManager.getPreviousComponent(Transform.class, 0).getPosition().x == 1;
+        assert componentManager.getComponent(Transform.class, 0).getPosition().x == 2;
+        assert componentManager.getPreviousComponent(Transform.class, 1).getPosition().x == 5;
+
+        componentManager.flip();
+        assert componentManager.getPreviousComponent(Transform.class, 0).getPosition().x == 2;
+    }
+
+    @Test
+    void shouldDoubleBufferArchetypesCreatedBeforeTheType() {
+        var componentManager = createComponentManager();
+        componentManager.addComponent(Transform.class, 0).setPosition(1, 0, 0);
+        componentManager.setDoubleBuffered(ComponentType.TRANSFORM);
+
+        componentManager.flip();
+        componentManager.nextTick();
+        componentManager.getComponentMut(Transform.class, 0).setPosition(2, 0, 0);
+
+        assert componentManager.getPreviousComponent(Transform.class, 0).getPosition().x == 1;
+    }
+
+    @Test
+    void shouldOnlySeeChangesMadeSinceLastFlip() {
+        var componentManager = createComponentManager();
+        componentManager.setDoubleBuffered(ComponentType.TRANSFORM);
+        componentManager.addComponent(Transform.class, 0);
+        componentManager.addComponent(Transform.class, 1);
+        var query = componentManager.query(Signature.of(ComponentType.TRANSFORM));
+
+        componentManager.flip();
+        componentManager.nextTick();
+        componentManager.getComponentMut(Transform.class, 0).setPosition(1, 0, 0);
+
+        List<Integer> changed = new ArrayList<>();
+        query.forEachChangedSince(componentManager.getFlipTick(), ComponentType.TRANSFORM, changed::add);
+        assert changed.equals(List.of(0));
+
+        componentManager.flip();
+        changed.clear();
+        query.forEachChangedSince(componentManager.getFlipTick(), ComponentType.TRANSFORM, changed::add);
+        assert changed.isEmpty();
+    }
+
+    private ComponentManager createComponentManager() {
+        var componentManager = new ComponentManager();
+        componentManager.registerComponent(new Transform());
+        componentManager.registerComponent(new RigidBody());
+        componentManager.registerComponent(new EcsModel());
+        return componentManager;
+    }
+}
@@ -0,0 +1,44 @@
+package andromeda.ecs.component;
+
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+class TransformTest {
+
+    @Test
+    void shouldComputeSameLocalTransformAsJoml() {
+        var position = new Vector3f(1, -2, 3);
+        var rotation = new Quaternionf().rotateXYZ(0.3f, 1.2f, -0.7f);
+        var scale = new Vector3f(2, 0.5f, 1);
+
+        var transform = new Transform();
+        transform.setPosition(position);
+        transform.setRotation(rotation);
+        transform.setScale(scale);
+
+        var expected = new Matrix4f().translation(position).rotate(rotation).scale(scale);
+
+        assert transform.getLocalTransform().equals(expected, 0.00001f);
+    }
+
+    @Test
+    void shouldInterpolateBetweenPreviousAndCurrentState() {
+        var previous = new TransformColumns(1);
+        previous.reset(0);
+        var current = new TransformColumns(1);
+        current.reset(0);
+        current.positionX[0] = 4;
+        var rotation = new Quaternionf().rotateY(1.0f);
+        current.rotationY[0] = rotation.y;
+        current.rotationW[0] = rotation.w;
+
+        var actual = current.interpolate(0, previous, 0.5f, new Matrix4f());
+
+        var expected = new Matrix4f().translation(2, 0, 0).rotate(new Quaternionf().rotateY(0.5f));
+        assert actual.equals(expected, 0.0001f);
+        // the local matrix still waits for the current state
+        assert current.dirty[0];
+    }
+}
@@ -0,0 +1,69 @@
+package andromeda.ecs.entity;
+
+import org.junit.jupiter.api.Test;
+
+class EntityManagerTest {
+
+    @Test
+    void shouldDetectStaleHandleWhenIdIsReused() {
+        var entityManager = new EntityManager();
+        int entity = entityManager.createEntity();
+        long handle = entityManager.getHandle(entity);
+
+        entityManager.destroyEntity(entity);
+        int reused = entityManager.createEntity();
+
+        assert reused == entity;
+        assert !entityManager.isAlive(handle);
+        assert entityManager.isAlive(entityManager.getHandle(reused));
+    }
+
+    @Test
+    void shouldGrowPastOnePage() {
+        var entityManager = new EntityManager();
+        int last = -1;
+        for (int i = 0; i < 10_000; i++) {
+            last = entityManager.createEntity();
+        }
+
+        assert last == 9_999;
+        assert entityManager.getSignature(last) != null;
+        assert entityManager.getEntities().size() == 10_000;
+    }
+
+    @Test
+    void shouldRestoreIdsAndGenerations() {
+        var entityManager = new EntityManager();
+        for (int i = 0; i < 4; i++) {
+            entityManager.createEntity();
+        }
+        long removedHandle = entityManager.getHandle(3);
+
+        entityManager.reset(new int[]{1, 5}, new int[]{7, 0});
+
+        assert entityManager.getEntities().size() == 2;
+        assert entityManager.isAlive(1) && entityManager.isAlive(5);
+        assert !entityManager.isAlive(0) && !entityManager.isAlive(3);
+        assert entityManager.getHandle(1) == ((7L << 32) | 1);
+        assert !entityManager.isAlive(removedHandle);
+
+        int reused = entityManager.createEntity();
+        assert reused == 0;
+    }
+
+    @Test
+    void shouldNotReviveHandlesAfterRestore() {
+        var entityManager = new EntityManager();
+        int entityId = entityManager.createEntity();
+        entityManager.destroyEntity(entityId);
+        entityManager.createEntity();
+        long handle = entityManager.getHandle(entityId);
+
+        entityManager.reset(new int[]{entityId}, new int[]{0});
+        assert !entityManager.isAlive(handle);
+
+        entityManager.destroyEntity(entityId);
+        assert entityManager.createEntity() == entityId;
+        assert !entityManager.isAlive(handle);
+    }
+}
@@ -0,0 +1,29 @@
+package andromeda.ecs.system;
+
+import org.junit.jupiter.api.Test;
+
+import static andromeda.ecs.component.ComponentType.*;
+
+class SignatureTest {
+
+    @Test
+    void shouldContainSubsets() {
+        var entity = Signature.of(MODEL, RIGID_BODY);
+
+        assert entity.contains(Signature.of(RIGID_BODY));
+        assert entity.contains(Signature.of(MODEL, RIGID_BODY));
+        assert !entity.contains(Signature.of(MODEL, CAMERA));
+    }
+
+    @Test
+    void shouldBeEqualWhenSameTypesAreSet() {
+        var signature = Signature.of(CAMERA);
+        var copy = signature.copy();
+        copy.set(PERSPECTIVE);
+        copy.clear(PERSPECTIVE);
+
+        assert signature.equals(copy);
+        assert signature.hashCode() == copy.hashCode();
+        assert !signature.equals(Signature.of(CAMERA, PERSPECTIVE));
+    }
+}
@@ -0,0 +1,65 @@
+package andromeda.ecs.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static andromeda.ecs.component.ComponentType.*;
+
+class SystemManagerTest {
+
+    @Test
+    void shouldCallLifecycleHooksOnMembershipChanges() {
+        var system = new HookSystem();
+        var systemManager = new SystemManager(() -> 0);
+        systemManager.registerSystem(system);
+
+        var signature = Signature.of(TRANSFORM);
+        systemManager.entitySignatureUpdate(1, signature);
+        signature.set(RIGID_BODY);
+        systemManager.entitySignatureUpdate(1, signature);
+        systemManager.entitySignatureUpdate(1, signature);
+        assert system.events.equals(List.of("add 1"));
+
+        signature.clear(RIGID_BODY);
+        systemManager.entitySignatureUpdate(1, signature);
+        systemManager.entitySignatureUpdate(2, Signature.of(RIGID_BODY));
+        systemManager.entityDestroyed(2);
+        systemManager.entityDestroyed(1);
+        assert system.events.equals(List.of("add 1", "remove 1", "add 2", "remove 2"));
+    }
+
+    private static class HookSystem extends EcsSystem {
+        private final List<String> events = new ArrayList<>();
+
+        HookSystem() {
+            super(null);
+        }
+
+        @Override
+        public void onAdd(int entityId) {
+            events.add("add " + entityId);
+        }
+
+        @Override
+        public void onRemove(int entityId) {
+            events.add("remove " + entityId);
+        }
+
+        @Override
+        public Set<Signature> getSignatures() {
+            return Set.of(Signature.of(RIGID_BODY));
+        }
+
+        @Override
+        public void update() {
+        }
+
+        @Override
+        public SystemType type() {
+            return SystemType.LOOP;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package andromeda.ecs.system;
+
+import andromeda.ecs.component.ComponentType;
+import andromeda.util.SparseSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static andromeda.ecs.component.ComponentType.*;
+
+class SystemSchedulerTest {
+
+    @Test
+    void shouldOnlyDependOnConflictingSystems() {
+        var physics = new TestSystem("physics", Set.of(TRANSFORM, RIGID_BODY), Set.of(TRANSFORM, RIGID_BODY), false, null);
+        var camera = new TestSystem("camera", Set.of(CAMERA), Set.of(), false, null);
+        var transform = new TestSystem("transform", Set.of(TRANSFORM), Set.of(TRANSFORM), false, null);
+        var render = new TestSystem("render", null, null, true, null);
+
+        var scheduler = new SystemScheduler(List.of(physics, camera, transform, render), ForkJoinPool.commonPool(), () -> 0);
+
+        assert scheduler.getDependencies(1).length == 0;
+        assert List.of(0).equals(toList(scheduler.getDependencies(2)));
+        assert List.of(0, 1, 2).equals(toList(scheduler.getDependencies(3)));
+    }
+
+    @Test
+    void shouldRunConflictingSystemsInOrder() {
+        var order = new CopyOnWriteArrayList<String>();
+        var writer = new TestSystem("writer", Set.of(), Set.of(TRANSFORM), false, order);
+        var reader = new TestSystem("reader", Set.of(TRANSFORM), Set.of(), false, order);
+        var main = new TestSystem("main", null, null, true, order);
+
+        var scheduler = new SystemScheduler(List.of(writer, reader, main), ForkJoinPool.commonPool(), () -> 0);
+        for (int i = 0; i < 10; i++) {
+            order.clear();
+            scheduler.update();
+            assert List.of("writer", "reader", "main").equals(order);
+        }
+    }
+
+    @Test
+    void shouldSkipSystemsThatAreNotDue() {
+        var order = new CopyOnWriteArrayList<String>();
+        var slow = new TestSystem("slow", Set.of(TRANSFORM), Set.of(), false, order) {
+            @Override
+            public float updateInterval() {
+                return 0.1f;
+            }
+        };
+        var fast = new TestSystem("fast", Set.of(), Set.of(TRANSFORM), false, order);
+
+        var scheduler = new SystemScheduler(List.of(slow, fast), ForkJoinPool.commonPool(), () -> 0);
+        for (int i = 0; i < 10; i++) {
+            scheduler.update(0.025f);
+        }
+
+        assert order.stream().filter("fast"::equals).count() == 10;
+        assert order.stream().filter("slow"::equals).count() == 2;
+        assert slow.getUpdateDelta() >= 0.1f;
+    }
+
+    @Test
+    void shouldSpreadPassOverSlices() {
+        var entities = new SparseSet();
+        for (int i = 0; i < 10; i++) {
+            entities.add(i);
+        }
+        var cursor = new EntityCursor();
+        var visited = new ArrayList<Integer>();
+
+        cursor.forEachSlice(entities, 4, visited::add);
+        assert visited.equals(List.of(0, 1, 2));
+        for (int i = 0; i < 3; i++) {
+            cursor.forEachSlice(entities, 4, visited::add);
+        }
+        assert visited.size() == 12 && visited.subList(0, 10).equals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+
+        visited.clear();
+        cursor.forEachWithinBudget(entities, 0, visited::add);
+        assert visited.size() == 1;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        return Arrays.stream(values).boxed().toList();
+    }
+
+    private static class TestSystem extends EcsSystem {
+        private final String name;
+        private final Set<ComponentType> reads;
+        private final Set<ComponentType> writes;
+        private final boolean mainThread;
+        private final List<String> order;
+
+        TestSystem(String name, Set<ComponentType> reads, Set<ComponentType> writes, boolean mainThread, List<String> order) {
+            super(null);
+            this.name = name;
+            this.reads = reads;
+            this.writes = writes;
+            this.mainThread = mainThread;
+            this.order = order;
+        }
+
+        @Override
+        public Set<Signature> getSignatures() {
+            return Set.of();
+        }
+
+        @Override
+        public void update() {
+            order.add(name);
+        }
+
+        @Override
+        public Set<ComponentType> reads() {
+            return reads;
+        }
+
+        @Override
+        public Set<ComponentType> writes() {
+            return writes;
+        }
+
+        @Override
+        public boolean mainThread() {
+            return mainThread;
+        }
+
+        @Override
+        public SystemType type() {
+            return SystemType.LOOP;
+        }
+    }
+}
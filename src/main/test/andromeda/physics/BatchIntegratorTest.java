@@ -0,0 +1,54 @@
+package andromeda.physics;
+
+import andromeda.ecs.component.RigidBodyColumns;
+import andromeda.ecs.component.TransformColumns;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+class BatchIntegratorTest {
+
+    @Test
+    void shouldGiveSameResultAsScalarLoop() {
+        int count = 1001;
+        var random = new Random(3);
+        var bodies = new RigidBodyColumns(count);
+        var transforms = new TransformColumns(count);
+        boolean[] enabled = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            bodies.velocityX[i] = random.nextFloat() * 20 - 10;
+            bodies.velocityY[i] = random.nextFloat() * 20 - 10;
+            bodies.velocityZ[i] = random.nextFloat() * 20 - 10;
+            bodies.drag[i] = random.nextFloat() * 0.1f;
+            bodies.sleeping[i] = random.nextInt(10) == 0;
+            bodies.mass[i] = random.nextInt(10) == 0 ? 0 : 1;
+            transforms.positionX[i] = random.nextFloat() * 100;
+            transforms.positionY[i] = random.nextFloat() * 2;
+            transforms.positionZ[i] = random.nextFloat() * 100;
+            enabled[i] = random.nextInt(10) != 0;
+        }
+        var expectedBodies = new RigidBodyColumns(count);
+        var expectedTransforms = new TransformColumns(count);
+        for (int i = 0; i < count; i++) {
+            bodies.copy(i, expectedBodies, i);
+            transforms.copy(i, expectedTransforms, i);
+        }
+
+        for (int step = 0; step < 10; step++) {
+            BatchIntegrator.integrate(bodies, transforms, enabled, count, 1 / 60f);
+            BatchIntegrator.integrateScalar(expectedBodies, expectedTransforms, enabled, 0, count, 1 / 60f);
+        }
+
+        assert Arrays.equals(bodies.velocityX, expectedBodies.velocityX);
+        assert Arrays.equals(bodies.velocityY, expectedBodies.velocityY);
+        assert Arrays.equals(bodies.velocityZ, expectedBodies.velocityZ);
+        assert Arrays.equals(transforms.positionX, expectedTransforms.positionX);
+        assert Arrays.equals(transforms.positionY, expectedTransforms.positionY);
+        assert Arrays.equals(transforms.positionZ, expectedTransforms.positionZ);
+        assert Arrays.equals(transforms.dirty, expectedTransforms.dirty);
+        for (int i = 0; i < count; i++) {
+            assert transforms.positionY[i] >= BatchIntegrator.GROUND || !BatchIntegrator.integrates(bodies, i) || !enabled[i];
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package andromeda.physics;
+
+import andromeda.config.PhysicsSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+class CollisionWorldTest {
+
+    @Test
+    void shouldFindSameOverlapsAsBruteForce() {
+        int count = 300;
+        var random = new Random(7);
+        float[] minX = new float[count], minY = new float[count], minZ = new float[count];
+        float[] maxX = new float[count], maxY = new float[count], maxZ = new float[count];
+        boolean[] active = new boolean[count];
+
+        var sweepAndPrune = new SweepAndPrune();
+        for (int update = 0; update < 3; update++) {
+            for (int i = 0; i < count; i++) {
+                minX[i] = random.nextFloat() * 20;
+                minY[i] = random.nextFloat() * 20;
+                minZ[i] = random.nextFloat() * 20;
+                maxX[i] = minX[i] + 0.5f + random.nextFloat();
+                maxY[i] = minY[i] + 1;
+                maxZ[i] = minZ[i] + 1;
+                active[i] = random.nextInt(3) == 0;
+                if (active[i]) {
+                    sweepAndPrune.activate(i);
+                } else {
+                    sweepAndPrune.freeze(i, minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i]);
+                }
+            }
+
+            int pairCount = sweepAndPrune.update(minX, minY, minZ, maxX, maxY, maxZ);
+            Set<Long> found = new HashSet<>();
+            int[] pairs = sweepAndPrune.getPairs();
+            for (int p = 0; p < pairCount; p++) {
+                int a = Math.min(pairs[p * 2], pairs[p * 2 + 1]);
+                int b = Math.max(pairs[p * 2], pairs[p * 2 + 1]);
+                found.add((long) a << 32 | b);
+            }
+
+            Set<Long> expected = new HashSet<>();
+            for (int a = 0; a < count; a++) {
+                for (int b = a + 1; b < count; b++) {
+                    if ((active[a] || active[b]) && minX[a] <= maxX[b] && minX[b] <= maxX[a]
+                            && minY[a] <= maxY[b] && minY[b] <= maxY[a] && minZ[a] <= maxZ[b] && minZ[b] <= maxZ[a]) {
+                        expected.add((long) a << 32 | b);
+                    }
+                }
+            }
+            assert found.size() == pairCount;
+            assert found.equals(expected);
+        }
+    }
+
+    @Test
+    void shouldSeparateBoxesAndExchangeImpulse() {
+        var world = new CollisionWorld();
+        int a = world.set(10, 0, 0, 0, 0.5f, 0.5f, 0.5f, false, 1, 0, 0, 1, 0, 0, 0, false);
+        int b = world.set(20, 0.8f, 0.1f, 0, 0.5f, 0.5f, 0.5f, false, -1, 0, 0, 1, 0, 0, 0, false);
+        int c = world.set(30, 10, 0, 0, 0.5f, 0.5f, 0.5f, true, 0, 0, 0, 1, 0, 0, 0, false);
+
+        assert world.solve(0.016f) == 1;
+
+        assert world.getVelocityX(a) <= 0 && world.getVelocityX(b) >= 0;
+        assert world.getOffsetX(a) < 0 && world.getOffsetX(b) > 0;
+        assert world.getOffsetY(a) == 0;
+        assert world.getOffsetX(c) == 0 && world.getVelocityX(c) == 0;
+        assert world.getChangedCount() == 3;
+    }
+
+    @Test
+    void shouldNotMoveStaticBodies() {
+        var world = new CollisionWorld();
+        int ground = world.set(0, 0, 0, 0, 5, 0.5f, 5, false, 0, 0, 0, 0, 0, 0, 0, false);
+        int box = world.set(1, 0, 0.9f, 0, 0.5f, 0.5f, 0.5f, true, 0, -2, 0, 1, 0, 0, 0, false);
+
+        world.solve(0.016f);
+
+        assert world.getOffsetY(ground) == 0 && world.getVelocityY(ground) == 0;
+        assert world.getOffsetY(box) > 0 && world.getVelocityY(box) >= 0;
+        assert world.getChangedCount() == 1 && world.getChanged(0) == box;
+    }
+
+    @Test
+    void shouldSleepRestingIslandsAndWakeThemOnContact() {
+        var world = new CollisionWorld();
+        int a = world.set(0, 0, 0, 0, 0.5f, 0.5f, 0.5f, false, 0, 0, 0, 1, 0, 0.1f, 0, false);
+        int b = world.set(1, 0, 0.95f, 0, 0.5f, 0.5f, 0.5f, false, 0, 0, 0, 1, 0, 0.1f, PhysicsSettings.sleepTime, false);
+
+        world.solve(0.016f);
+        assert !world.isSleeping(a) && !world.isSleeping(b);
+
+        world.set(0, 0, 0, 0, 0.5f, 0.5f, 0.5f, false, 0, 0, 0, 1, 0, 0.1f, PhysicsSettings.sleepTime, false);
+        world.solve(0.016f);
+        assert world.isSleeping(a) && world.isSleeping(b);
+        assert world.getAwakeCount() == 0;
+
+        // a sleeping island stays out of the step until something moves into it
+        world.solve(0.016f);
+        assert world.getChangedCount() == 0;
+
+        int c = world.set(2, 0.9f, 0, 0, 0.5f, 0.5f, 0.5f, false, -3, 0, 0, 1, 0, 0.1f, 0, false);
+        world.solve(0.016f);
+        assert !world.isSleeping(a) && !world.isSleeping(b) && !world.isSleeping(c);
+        assert world.getChangedCount() == 3;
+    }
+
+    @Test
+    void shouldWakeSleepingBodiesThatAreMoved() {
+        var world = new CollisionWorld();
+        int a = world.set(0, 0, 0, 0, 0.5f, 0.5f, 0.5f, false, 0, 0, 0, 1, 0, 0.1f, PhysicsSettings.sleepTime, true);
+        assert world.isSleeping(a) && world.getAwakeCount() == 0;
+
+        world.set(0, 0, 2, 0, 0.5f, 0.5f, 0.5f, false, 0, 0, 0, 1, 0, 0.1f, PhysicsSettings.sleepTime, true);
+        assert !world.isSleeping(a) && world.getAwakeCount() == 1;
+
+        world.remove(0);
+        assert world.getBody(0) == -1 && world.getAwakeCount() == 0;
+    }
+}
@@ -0,0 +1,33 @@
+package andromeda.render.pipeline;
+
+import andromeda.geometry.Mesh;
+import andromeda.geometry.Primitives;
+import andromeda.material.Material;
+import andromeda.scene.RenderTarget;
+import andromeda.util.Cascade;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class ShadowPassTest {
+
+    @Test
+    void shouldOnlyKeepCastersThatReachTheCascade() {
+        var geometry = Primitives.cube();
+        var material = new Material();
+        var inside = new RenderTarget(new Mesh(geometry, material), new Matrix4f(), 0);
+        var towardLight = new RenderTarget(new Mesh(geometry, material), new Matrix4f().translate(0, 150, 0), 1);
+        var beside = new RenderTarget(new Mesh(geometry, material), new Matrix4f().translate(20, 0, 0), 2);
+
+        // looking straight down from 100 units above the origin, 10 units wide
+        var lightSpace = new Matrix4f().ortho(-5, 5, -5, 5, 0, 200).lookAt(0, 100, 0, 0, 0, 0, 0, 0, -1);
+        var near = new Cascade(lightSpace, 0.1f, 5);
+        var far = new Cascade(new Matrix4f(lightSpace).translate(-50, 0, 0), 1, 5);
+
+        var casters = new ShadowPass().cullCasters(List.of(inside, towardLight, beside), new Cascade[]{near, far});
+
+        assert casters.get(0).equals(List.of(inside, towardLight));
+        assert casters.get(1).isEmpty();
+    }
+}
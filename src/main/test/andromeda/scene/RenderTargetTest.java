@@ -0,0 +1,32 @@
+package andromeda.scene;
+
+import andromeda.geometry.Mesh;
+import andromeda.geometry.Primitives;
+import andromeda.material.Material;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+class RenderTargetTest {
+
+    @Test
+    void shouldTransformBoundsToWorldSpace() {
+        var geometry = Primitives.cube();
+        var transform = new Matrix4f().translate(10, 0, 0).scale(2);
+        var renderTarget = new RenderTarget(new Mesh(geometry, new Material()), transform, 0);
+
+        var bounds = renderTarget.getBounds();
+        assert bounds.min.x == 9 && bounds.max.x == 11;
+        assert bounds.min.y == -1 && bounds.max.y == 1;
+
+        var sphere = renderTarget.getBoundingSphere();
+        assert sphere.position.x == 10;
+        assert Math.abs(sphere.radius - geometry.getBoundingSphere().radius * 2) < 1e-5f;
+
+        var projectionView = new Matrix4f().perspective((float) Math.toRadians(60), 1, 0.1f, 100)
+                .lookAt(0, 0, 0, 0, 0, -1, 0, 1, 0);
+        var frustum = new FrustumIntersection(projectionView);
+        assert !frustum.testSphere(sphere.position, sphere.radius);
+        assert !frustum.testAab(bounds.min, bounds.max);
+    }
+}
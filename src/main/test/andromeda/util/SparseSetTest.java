@@ -0,0 +1,38 @@
+package andromeda.util;
+
+import org.junit.jupiter.api.Test;
+
+class SparseSetTest {
+
+    @Test
+    void shouldAddAndRemoveValues() {
+        var set = new SparseSet(2);
+
+        assert set.add(5);
+        assert set.add(300);
+        assert set.add(7);
+        assert !set.add(7);
+
+        assert set.remove(5);
+        assert !set.remove(5);
+
+        assert set.size() == 2;
+        assert !set.contains(5);
+        assert set.contains(300) && set.contains(7);
+    }
+
+    @Test
+    void shouldKeepValuesDenseAfterRemove() {
+        var set = new SparseSet();
+        for (int i = 0; i < 10; i++) {
+            set.add(i);
+        }
+
+        set.remove(3);
+
+        int[] sum = {0};
+        set.forEach(value -> sum[0] += value);
+        assert sum[0] == 45 - 3;
+        assert set.get(3) == 9;
+    }
+}